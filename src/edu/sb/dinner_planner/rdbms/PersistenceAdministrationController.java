@@ -1,25 +1,65 @@
 package edu.sb.dinner_planner.rdbms;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.helper.DatabaseField;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
 import edu.sb.dinner_planner.persistence.AbstractEntity;
 import edu.sb.dinner_planner.persistence.Document;
 import edu.sb.dinner_planner.persistence.Ingredient;
 import edu.sb.dinner_planner.persistence.Person;
 import edu.sb.dinner_planner.persistence.Recipe;
 import edu.sb.dinner_planner.persistence.Victual;
+import edu.sb.dinner_planner.server.DocumentBlobStore;
+import edu.sb.dinner_planner.server.SecondLevelCacheControl;
 import edu.sb.tool.CommandShell;
 import edu.sb.tool.Copyright;
-import edu.sb.tool.HashCodes;
+import jakarta.json.Json;
+import jakarta.json.JsonObject;
 import jakarta.json.bind.Jsonb;
 import jakarta.json.bind.JsonbBuilder;
 import jakarta.persistence.Cache;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
 import jakarta.persistence.Persistence;
-import jakarta.persistence.TypedQuery;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Validation;
 import jakarta.validation.Validator;
 
@@ -31,16 +71,30 @@ import jakarta.validation.Validator;
 public class PersistenceAdministrationController {
 	static private final Jsonb JSON_MARSHALER = JsonbBuilder.create();
 	static private final Validator VALIDATOR = Validation.buildDefaultValidatorFactory().getValidator();
-	static private final String QUERY_ENTITIES = "select e from AbstractEntity as e";
-	static private final String QUERY_DOCUMENT_BY_HASH = "select d from Document as d where d.hash = :hash";
+	static private final String QUERY_DOCUMENT_IDENTITY_BY_HASH = "select d.identity from Document as d where d.hash = :hash";
+	static private final String UPDATE_DOCUMENT_METADATA = "update Document as d set d.version = d.version + 1, d.modified = :modified, d.type = :type, d.description = :description where d.identity = :identity";
+	static private final String SQL_UPDATE_DOCUMENT_CONTENT = "UPDATE %1$s SET %2$s = ? WHERE %4$s = ?";
+	static private final String SQL_UPDATE_DOCUMENT_HASH = "UPDATE %1$s SET %3$s = ? WHERE %4$s = ?";
+	static private final String SQL_SELECT_DOCUMENT_CONTENT = "SELECT %4$s, %3$s, %2$s FROM %1$s WHERE %4$s > ? ORDER BY %4$s";
+	static private final String SQL_SELECT_DOCUMENT_HASHES = "SELECT %4$s, %3$s FROM %1$s";
+	static private final int BLOB_MIGRATION_PAGE_SIZE = 100;
+	static private final String QUERY_ENTITY_PAGE = "select e from %s as e where e.identity > :lowerIdentity and e.identity <= :upperIdentity order by e.identity";
+	static private final Pattern QUERY_OPTION_PATTERN = Pattern.compile("(type|from|to)=(\\S+)");
+	static private final Pattern IMPORT_OPTION_PATTERN = Pattern.compile("batch=(\\d+)");
+	static private final Pattern DOCUMENT_OPTION_PATTERN = Pattern.compile("dir=(\\S+)\\s+(.+)");
+	static private final Map<String,Class<? extends AbstractEntity>> IMPORT_TYPES = Map.of("Person", Person.class, "Recipe", Recipe.class, "Ingredient", Ingredient.class);
+	static private final int QUERY_PAGE_SIZE = 1000;
+	static private final int DEFAULT_BATCH_SIZE = 500;
 
 	private final CommandShell terminal;
 	private final EntityManagerFactory entityManagerFactory;
+	private PerformanceMonitor performanceMonitor;
 
 
 	public PersistenceAdministrationController () {
 		this.terminal = new CommandShell();
 		this.entityManagerFactory = Persistence.createEntityManagerFactory("local_database");
+		this.performanceMonitor = null;
 
 		this.terminal.setDefaultEventListener(event -> this.processHelpCommand(event.arguments()));
 		this.terminal.addEventListener("quit", event -> this.processQuitCommand(event.arguments()));
@@ -58,6 +112,13 @@ public class PersistenceAdministrationController {
 		this.terminal.addEventListener("remove-ingredient", event -> this.processDeleteIngredientCommand(event.arguments()));
 		this.terminal.addEventListener("add-illustration", event -> this.processAddIllustrationCommand(event.arguments()));
 		this.terminal.addEventListener("remove-illustration", event -> this.processRemoveIllustrationCommand(event.arguments()));
+		this.terminal.addEventListener("import", event -> this.processImportCommand(event.arguments()));
+		this.terminal.addEventListener("dump", event -> this.processDumpCommand(event.arguments()));
+		this.terminal.addEventListener("restore", event -> this.processRestoreCommand(event.arguments()));
+		this.terminal.addEventListener("blob-migrate", event -> this.processBlobMigrateCommand(event.arguments()));
+		this.terminal.addEventListener("blob-check", event -> this.processBlobCheckCommand(event.arguments()));
+		this.terminal.addEventListener("cache-stats", event -> this.processCacheStatsCommand(event.arguments()));
+		this.terminal.addEventListener("cache-evict", event -> this.processCacheEvictCommand(event.arguments()));
 	}
 
 
@@ -81,11 +142,11 @@ public class PersistenceAdministrationController {
 		System.out.println("- exit: Terminates this program");
 		System.out.println("- quit: Terminates this program");
 		System.out.println("- help: Displays this command list");
-		System.out.println("- query-entities: Queries and displays all entities");
+		System.out.println("- query-entities [type=<entity-type>] [from=<entity-ID>] [to=<entity-ID>] [file=<file-path>]: Queries and exports entities as JSON lines, optionally filtered by type and identity range, to the console or the given file");
 		System.out.println("- insert-person <JSON>: Inserts a new person into the database");
 		System.out.println("- update-person <JSON>: Updates an existing person within the database");
 		System.out.println("- delete-person <person-ID>: Deletes an existing person from the database");
-		System.out.println("- insert-document <file-path>: Inserts/Updates a document within the database");
+		System.out.println("- insert-document [dir=<directory-path>] <file-or-directory-path>: Inserts/Updates a document, or all documents of a directory in parallel, within the database, and into the given content-addressed blob store if any");
 		System.out.println("- delete-document <document-ID>: Deletes an existing document from the database");
 		System.out.println("- insert-recipe <JSON>: Inserts a new recipe into the database");
 		System.out.println("- update-recipe <JSON>: Updates an existing recipe within the database");
@@ -94,22 +155,85 @@ public class PersistenceAdministrationController {
 		System.out.println("- remove-ingredient <ingredient-ID>: Deletes an existing ingredient from the database");
 		System.out.println("- add-illustration <recipe-ID> <document-ID>: Associates the given recipe with the given document");
 		System.out.println("- remove-illustration <recipe-ID> <document-ID>: Disassociates the given recipe from the given document");
+		System.out.println("- import [batch=<batch-size>] file=<file-path>: Imports persons, recipes and ingredients from the given JSON lines file in batches");
+		System.out.println("- dump file=<file-path>: Dumps all tables into the given binary snapshot file");
+		System.out.println("- restore [batch=<batch-size>] file=<file-path>: Replaces the content of all tables with the given binary snapshot file");
+		System.out.println("- blob-migrate dir=<directory-path>: Copies all document content into the given content-addressed blob store");
+		System.out.println("- blob-check dir=<directory-path>: Checks the given blob store for missing, corrupt and orphaned document content");
+		System.out.println("- cache-stats [start|stop]: Displays the second level cache size and hit ratio per entity type, or starts/stops recording cache hits and misses");
+		System.out.println("- cache-evict [<entity-type> [<entity-ID>]]: Evicts all entities, those of the given type, or the given entity from the second level cache");
+		System.out.println("Note that the cache commands affect this process's second level cache; the caches of running containers are");
+		System.out.println("controlled using their SecondLevelCacheControl JMX beans, and preloaded during their warm-up if configured.");
 	}
 
 
-	private void processQueryEntitiesCommand (final String arguments) {
+	private void processQueryEntitiesCommand (final String arguments) throws IOException {
+		final int fileOptionIndex = arguments.indexOf("file=");
+		final String filterOptions = fileOptionIndex == -1 ? arguments : arguments.substring(0, fileOptionIndex);
+		final Path filePath = fileOptionIndex == -1 ? null : Paths.get(arguments.substring(fileOptionIndex + 5).trim());
+		String entityName = AbstractEntity.class.getSimpleName();
+		long lowerIdentity = 0, upperIdentity = Long.MAX_VALUE;
+		for (final Matcher matcher = QUERY_OPTION_PATTERN.matcher(filterOptions); matcher.find(); ) {
+			switch (matcher.group(1)) {
+				case "type":
+					entityName = matcher.group(2);
+					break;
+				case "from":
+					lowerIdentity = Long.parseLong(matcher.group(2)) - 1;
+					break;
+				case "to":
+					upperIdentity = Long.parseLong(matcher.group(2));
+					break;
+			}
+		}
+		final EntityType<?> entityType = this.entityType(entityName);
+
+		final long timestamp = System.nanoTime();
+		final long entityCount;
+		if (filePath == null) {
+			final Writer writer = new BufferedWriter(new OutputStreamWriter(System.out, UTF_8));
+			entityCount = this.exportEntities(entityType, lowerIdentity, upperIdentity, writer);
+			writer.flush();
+		} else {
+			try (Writer writer = Files.newBufferedWriter(filePath, UTF_8)) {
+				entityCount = this.exportEntities(entityType, lowerIdentity, upperIdentity, writer);
+			}
+		}
+
+		System.out.format("Exported %d %s entities within %d ms%n", entityCount, entityType.getName(), (System.nanoTime() - timestamp) / 1_000_000);
+	}
+
+
+	private long exportEntities (final EntityType<?> entityType, final long lowerIdentity, final long upperIdentity, final Writer writer) throws IOException {
+		long entityCount = 0;
 		try (EntityManager entityManager = this.entityManagerFactory.createEntityManager()) {
 			entityManager.getTransaction().begin();
 			try {
-				final TypedQuery<AbstractEntity> query = entityManager.createQuery(QUERY_ENTITIES, AbstractEntity.class);
-
-				System.out.println("Available entities:");
-				query.getResultStream().forEach(entity -> System.out.println(JSON_MARSHALER.toJson(entity)));
-				System.out.println();
+				for (long lastIdentity = lowerIdentity; true; ) {
+					final List<? extends AbstractEntity> entities = entityManager
+						.createQuery(String.format(QUERY_ENTITY_PAGE, entityType.getName()), entityType.getJavaType().asSubclass(AbstractEntity.class))
+						.setParameter("lowerIdentity", lastIdentity)
+						.setParameter("upperIdentity", upperIdentity)
+						.setMaxResults(QUERY_PAGE_SIZE)
+						.setHint("eclipselink.maintain-cache", Boolean.FALSE)
+						.getResultList();
+					if (entities.isEmpty()) break;
+
+					for (final AbstractEntity entity : entities) {
+						writer.write(JSON_MARSHALER.toJson(entity));
+						writer.write('\n');
+					}
+
+					entityCount += entities.size();
+					lastIdentity = entities.get(entities.size() - 1).getIdentity();
+					entityManager.clear();
+				}
 			} finally {
 				entityManager.getTransaction().rollback();
 			}
 		}
+
+		return entityCount;
 	}
 
 
@@ -205,33 +329,125 @@ public class PersistenceAdministrationController {
 
 
 	private void processInsertOrUpdateDocumentCommand (final String arguments) throws IOException {
-		final Path documentPath = Paths.get(arguments);
-		final byte[] documentContent = Files.readAllBytes(documentPath);
-		final String documentHash = HashCodes.sha2HashText(256, documentContent);
+		// the admin process doesn't load the container's component configuration, so the blob store must be given explicitly
+		final Matcher documentOptionMatcher = DOCUMENT_OPTION_PATTERN.matcher(arguments.trim());
+		final boolean directoryOption = documentOptionMatcher.matches();
+		final DocumentBlobStore blobStore = directoryOption ? new DocumentBlobStore(Paths.get(documentOptionMatcher.group(1))) : DocumentBlobStore.defaultStore();
+		final Path path = Paths.get(directoryOption ? documentOptionMatcher.group(2).trim() : arguments.trim());
+		final List<Path> documentPaths;
+		if (Files.isDirectory(path)) {
+			try (Stream<Path> children = Files.list(path)) {
+				documentPaths = children.filter(Files::isRegularFile).sorted().toList();
+			}
+		} else {
+			documentPaths = List.of(path);
+		}
+
+		final long timestamp = System.nanoTime();
+		final String[] contentColumns = this.documentContentColumns();
+		final AtomicInteger documentCount = new AtomicInteger();
+		documentPaths.parallelStream().forEach(documentPath -> {
+			try {
+				final long documentIdentity = this.insertOrUpdateDocument(documentPath, blobStore, contentColumns);
+				documentCount.incrementAndGet();
+				System.out.println("Inserted/Updated document with ID " + documentIdentity + " from " + documentPath);
+			} catch (final IOException | RuntimeException exception) {
+				System.out.println("Failed to insert/update document from " + documentPath + ": " + exception);
+			}
+		});
+
+		if (documentPaths.size() > 1) System.out.format("Inserted/Updated %d of %d documents within %d ms%n", documentCount.get(), documentPaths.size(), (System.nanoTime() - timestamp) / 1_000_000);
+	}
+
+
+	private long insertOrUpdateDocument (final Path documentPath, final DocumentBlobStore blobStore, final String[] contentColumns) throws IOException {
 		final String documentType = Files.probeContentType(documentPath);
 		final String documentDescription = documentPath.getFileName().toString();
+		final Path contentPath = blobStore == null ? documentPath : blobStore.path(blobStore.store(Files.newInputStream(documentPath)));
+		final String documentHash;
 
 		try (EntityManager entityManager = this.entityManagerFactory.createEntityManager()) {
 			entityManager.getTransaction().begin();
 			try {
-				final TypedQuery<Document> query = entityManager.createQuery(QUERY_DOCUMENT_BY_HASH, Document.class);
-				final Document document = query
-					.setParameter("hash", documentHash)
-					.getResultStream()
-					.findAny()
-					.orElseGet(() -> new Document(documentContent));
-
+				// persist with unique placeholder content, then stream the real content into the row while hashing it;
+				// if a blob store is configured, the content is streamed from it's immutable blob instead of the file
+				final Document document = new Document(("pending-" + UUID.randomUUID()).getBytes(US_ASCII));
 				document.setModified(System.currentTimeMillis());
 				document.setType(documentType);
 				document.setDescription(documentDescription);
+				entityManager.persist(document);
+				entityManager.flush();
+				final long documentIdentity = document.getIdentity();
+
+				final Connection connection = entityManager.unwrap(Connection.class);
+				final MessageDigest digest = DocumentBlobStore.newDigest();
+				try (PreparedStatement statement = connection.prepareStatement(String.format(SQL_UPDATE_DOCUMENT_CONTENT, (Object[]) contentColumns))) {
+					try (InputStream contentSource = new DigestInputStream(Files.newInputStream(contentPath), digest)) {
+						statement.setBinaryStream(1, contentSource);
+						statement.setLong(2, documentIdentity);
+						if (statement.executeUpdate() != 1) throw new PersistenceException("document content not updated!");
+					}
+				} catch (final SQLException exception) {
+					throw new PersistenceException(exception);
+				}
+				documentHash = DocumentBlobStore.hashText(digest.digest());
 
-				if (document.getIdentity() == 0L)
-					entityManager.persist(document);
-				else
-					entityManager.flush();
+				final boolean duplicate = entityManager
+					.createQuery(QUERY_DOCUMENT_IDENTITY_BY_HASH, Long.class)
+					.setParameter("hash", documentHash)
+					.getResultStream()
+					.anyMatch(identity -> identity != documentIdentity);
+
+				if (!duplicate && this.updateDocumentHash(connection, documentIdentity, documentHash, contentColumns)) {
+					entityManager.getTransaction().commit();
+					this.entityManagerFactory.getCache().evict(Document.class, documentIdentity);
+					return documentIdentity;
+				}
+			} finally {
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+			}
+		}
+
+		return this.updateDocumentMetadata(documentHash, documentType, documentDescription);
+	}
+
+
+	private boolean updateDocumentHash (final Connection connection, final long documentIdentity, final String documentHash, final String[] contentColumns) {
+		try (PreparedStatement statement = connection.prepareStatement(String.format(SQL_UPDATE_DOCUMENT_HASH, (Object[]) contentColumns))) {
+			statement.setString(1, documentHash);
+			statement.setLong(2, documentIdentity);
+			if (statement.executeUpdate() != 1) throw new PersistenceException("document hash not updated!");
+			return true;
+		} catch (final SQLException exception) {
+			// integrity constraint violations indicate the same content having been inserted concurrently
+			if (exception.getSQLState() != null && exception.getSQLState().startsWith("23")) return false;
+			throw new PersistenceException(exception);
+		}
+	}
+
+
+	private long updateDocumentMetadata (final String documentHash, final String documentType, final String documentDescription) {
+		try (EntityManager entityManager = this.entityManagerFactory.createEntityManager()) {
+			entityManager.getTransaction().begin();
+			try {
+				final long documentIdentity = entityManager
+					.createQuery(QUERY_DOCUMENT_IDENTITY_BY_HASH, Long.class)
+					.setParameter("hash", documentHash)
+					.getResultStream()
+					.findAny()
+					.orElseThrow(() -> new PersistenceException("document not found!"));
+
+				entityManager
+					.createQuery(UPDATE_DOCUMENT_METADATA)
+					.setParameter("modified", System.currentTimeMillis())
+					.setParameter("type", documentType)
+					.setParameter("description", documentDescription)
+					.setParameter("identity", documentIdentity)
+					.executeUpdate();
 
 				entityManager.getTransaction().commit();
-				System.out.println("Inserted/Updated document with ID " + document.getIdentity());
+				this.entityManagerFactory.getCache().evict(Document.class, documentIdentity);
+				return documentIdentity;
 			} finally {
 				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
 			}
@@ -239,6 +455,19 @@ public class PersistenceAdministrationController {
 	}
 
 
+	private String[] documentContentColumns () {
+		final ClassDescriptor descriptor = JpaHelper.getServerSession(this.entityManagerFactory).getDescriptor(Document.class);
+		final DatabaseField contentField = descriptor.getMappingForAttributeName("content").getField();
+		final DatabaseField hashField = descriptor.getMappingForAttributeName("hash").getField();
+		final DatabaseField identityField = descriptor.getPrimaryKeyFields().get(0).getTable().equals(contentField.getTable())
+			? descriptor.getPrimaryKeyFields().get(0)
+			: descriptor.getAdditionalTablePrimaryKeyFields().get(contentField.getTable()).values().iterator().next();
+		if (!hashField.getTable().equals(contentField.getTable()) || !identityField.getTable().equals(contentField.getTable())) throw new IllegalStateException("document content, hash and identity must share a table!");
+
+		return new String[] { contentField.getTable().getQualifiedName(), contentField.getName(), hashField.getName(), identityField.getName() };
+	}
+
+
 	private void processDeleteDocumentCommand (final String arguments) {
 		final long documentIdentity = Long.parseLong(arguments);
 
@@ -473,4 +702,391 @@ public class PersistenceAdministrationController {
 			}
 		}
 	}
+
+
+	private void processImportCommand (final String arguments) throws IOException {
+		final int fileOptionIndex = arguments.indexOf("file=");
+		if (fileOptionIndex == -1) throw new IllegalArgumentException("file path missing!");
+		final Path filePath = Paths.get(arguments.substring(fileOptionIndex + 5).trim());
+		final Matcher batchOptionMatcher = IMPORT_OPTION_PATTERN.matcher(arguments.substring(0, fileOptionIndex));
+		final int batchSize = batchOptionMatcher.find() ? Integer.parseInt(batchOptionMatcher.group(1)) : DEFAULT_BATCH_SIZE;
+		if (batchSize <= 0) throw new IllegalArgumentException("batch size must be positive!");
+
+		final Map<String,Object> importProperties = Map.of(
+			"eclipselink.session-name", "local_database-import",
+			"eclipselink.jdbc.batch-writing", "JDBC",
+			"eclipselink.jdbc.batch-writing.size", Integer.toString(batchSize),
+			"eclipselink.cache.shared.default", "false"
+		);
+		final Map<Class<?>,Set<String>> associationNames = IMPORT_TYPES.values().stream().collect(Collectors.toMap(type -> type, this::associationNames));
+		final Map<String,Long> importedIdentities = new HashMap<>();
+		final List<String> rejections = new ArrayList<>();
+		final long timestamp = System.nanoTime();
+		long recordCount = 0, importCount = 0;
+
+		final EntityManagerFactory importEntityManagerFactory = Persistence.createEntityManagerFactory("local_database", importProperties);
+		try (BufferedReader reader = Files.newBufferedReader(filePath, UTF_8)) {
+			final List<String> lines = new ArrayList<>(batchSize);
+			long lineNumber = 1;
+			for (boolean endOfFile = false; !endOfFile; ) {
+				final String line = reader.readLine();
+				endOfFile = line == null;
+				if (!endOfFile) lines.add(line);
+				if (lines.isEmpty() || (lines.size() < batchSize && !endOfFile)) continue;
+
+				final long firstLineNumber = lineNumber;
+				final List<ImportRecord> records = IntStream.range(0, lines.size())
+					.parallel()
+					.mapToObj(index -> this.importRecord(firstLineNumber + index, lines.get(index), associationNames))
+					.filter(Objects::nonNull)
+					.toList();
+
+				recordCount += records.size();
+				importCount += this.importBatch(importEntityManagerFactory, records, associationNames, importedIdentities, rejections);
+				lineNumber += lines.size();
+				lines.clear();
+			}
+		} finally {
+			importEntityManagerFactory.close();
+		}
+
+		this.entityManagerFactory.getCache().evictAll();
+		final long duration = Math.max(1, (System.nanoTime() - timestamp) / 1_000_000);
+		System.out.format("Imported %d of %d records within %d ms (%d rows/s), %d rejected%n", importCount, recordCount, duration, importCount * 1000 / duration, rejections.size());
+		rejections.forEach(rejection -> System.out.println("- " + rejection));
+	}
+
+
+	private ImportRecord importRecord (final long lineNumber, final String line, final Map<Class<?>,Set<String>> associationNames) {
+		if (line.isBlank()) return null;
+
+		try {
+			final JsonObject object = Json.createReader(new StringReader(line)).readObject();
+			final Class<? extends AbstractEntity> entityType = IMPORT_TYPES.get(object.getString("type"));
+			if (entityType == null) throw new IllegalArgumentException("unsupported type \"" + object.getString("type") + "\"!");
+			if (!object.containsKey("entity")) throw new IllegalArgumentException("entity missing!");
+
+			final AbstractEntity template = JSON_MARSHALER.fromJson(object.getJsonObject("entity").toString(), entityType);
+			if (template.getIdentity() != 0) throw new IllegalArgumentException("JSON entity identity must be zero!");
+
+			final String violations = VALIDATOR.validate(template)
+				.stream()
+				.filter(violation -> !associationNames.get(entityType).contains(violation.getPropertyPath().iterator().next().getName()))
+				.map(ConstraintViolation::getPropertyPath)
+				.map(Object::toString)
+				.collect(Collectors.joining(", "));
+			if (!violations.isEmpty()) throw new IllegalArgumentException("JSON entity data must be valid: " + violations);
+
+			return new ImportRecord(lineNumber, line, object.getString("key", null), template, null);
+		} catch (final RuntimeException exception) {
+			return new ImportRecord(lineNumber, line, null, null, exception.getMessage());
+		}
+	}
+
+
+	private int importBatch (final EntityManagerFactory importEntityManagerFactory, final List<ImportRecord> records, final Map<Class<?>,Set<String>> associationNames, final Map<String,Long> importedIdentities, final List<String> rejections) {
+		final List<String> batchRejections = new ArrayList<>();
+		try {
+			final int importCount = this.importRecords(importEntityManagerFactory, records, importedIdentities, batchRejections);
+			rejections.addAll(batchRejections);
+			return importCount;
+		} catch (final PersistenceException exception) {
+			// retry record by record, re-parsing every record because the failed attempt may have modified it's template
+			int importCount = 0;
+			for (final ImportRecord batchRecord : records) {
+				final ImportRecord record = batchRecord.rejection() == null ? this.importRecord(batchRecord.lineNumber(), batchRecord.line(), associationNames) : batchRecord;
+				try {
+					importCount += this.importRecords(importEntityManagerFactory, List.of(record), importedIdentities, rejections);
+				} catch (final PersistenceException recordException) {
+					Throwable cause = recordException;
+					while (cause.getCause() != null) cause = cause.getCause();
+					rejections.add("line " + record.lineNumber() + ": " + cause.getMessage());
+				}
+			}
+			return importCount;
+		}
+	}
+
+
+	private int importRecords (final EntityManagerFactory importEntityManagerFactory, final List<ImportRecord> records, final Map<String,Long> importedIdentities, final List<String> rejections) {
+		final Map<String,AbstractEntity> batchEntities = new HashMap<>();
+		int importCount = 0;
+
+		try (EntityManager entityManager = importEntityManagerFactory.createEntityManager()) {
+			entityManager.getTransaction().begin();
+			try {
+				for (final ImportRecord record : records) {
+					if (record.rejection() != null) {
+						rejections.add("line " + record.lineNumber() + ": " + record.rejection());
+						continue;
+					}
+
+					try {
+						if (record.key() != null && (importedIdentities.containsKey(record.key()) || batchEntities.containsKey(record.key()))) throw new IllegalArgumentException("duplicate key \"" + record.key() + "\"!");
+						final AbstractEntity entity = this.importEntity(entityManager, record.template(), importedIdentities, batchEntities);
+
+						entityManager.persist(entity);
+						if (record.key() != null) batchEntities.put(record.key(), entity);
+						importCount += 1;
+					} catch (final IllegalArgumentException | ClassCastException exception) {
+						rejections.add("line " + record.lineNumber() + ": " + exception.getMessage());
+					}
+				}
+
+				entityManager.getTransaction().commit();
+			} finally {
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+			}
+		}
+
+		batchEntities.forEach((key, entity) -> importedIdentities.put(key, entity.getIdentity()));
+		return importCount;
+	}
+
+
+	private AbstractEntity importEntity (final EntityManager entityManager, final AbstractEntity template, final Map<String,Long> importedIdentities, final Map<String,AbstractEntity> batchEntities) {
+		if (template instanceof Person) {
+			final Person person = (Person) template;
+			final Object avatarReference = person.getAttributes().get("avatar-reference");
+			person.setAvatar(this.importReference(entityManager, Document.class, avatarReference == null ? 1L : avatarReference, importedIdentities, batchEntities));
+			return person;
+		}
+
+		if (template instanceof Recipe) {
+			final Recipe recipe = (Recipe) template;
+			final Object avatarReference = recipe.getAttributes().get("avatar-reference");
+			if (avatarReference != null) recipe.setAvatar(this.importReference(entityManager, Document.class, avatarReference, importedIdentities, batchEntities));
+			final Object authorReference = recipe.getAttributes().get("author-reference");
+			if (authorReference != null) recipe.setAuthor(this.importReference(entityManager, Person.class, authorReference, importedIdentities, batchEntities));
+			return recipe;
+		}
+
+		final Ingredient ingredientTemplate = (Ingredient) template;
+		final Object recipeReference = ingredientTemplate.getAttributes().get("recipe-reference");
+		if (recipeReference == null) throw new IllegalArgumentException("recipe not found!");
+		if (ingredientTemplate.getVictual() == null) throw new IllegalArgumentException("victual not found!");
+
+		final Ingredient ingredient = new Ingredient(this.importReference(entityManager, Recipe.class, recipeReference, importedIdentities, batchEntities));
+		ingredient.setVictual(this.importReference(entityManager, Victual.class, ingredientTemplate.getVictual().getIdentity(), importedIdentities, batchEntities));
+		ingredient.setAmount(ingredientTemplate.getAmount());
+		ingredient.setUnit(ingredientTemplate.getUnit());
+		return ingredient;
+	}
+
+
+	private <T extends AbstractEntity> T importReference (final EntityManager entityManager, final Class<T> type, final Object reference, final Map<String,Long> importedIdentities, final Map<String,AbstractEntity> batchEntities) {
+		if (reference instanceof Number) {
+			final T entity = entityManager.find(type, ((Number) reference).longValue());
+			if (entity == null) throw new IllegalArgumentException(type.getSimpleName().toLowerCase() + " not found!");
+			return entity;
+		}
+
+		final String key = (String) reference;
+		if (batchEntities.containsKey(key)) return type.cast(batchEntities.get(key));
+		if (!importedIdentities.containsKey(key)) throw new IllegalArgumentException(type.getSimpleName().toLowerCase() + " \"" + key + "\" not found!");
+		return entityManager.getReference(type, importedIdentities.get(key));
+	}
+
+
+	private Set<String> associationNames (final Class<?> entityType) {
+		return this.entityManagerFactory.getMetamodel().entity(entityType).getAttributes()
+			.stream()
+			.filter(Attribute::isAssociation)
+			.map(Attribute::getName)
+			.collect(Collectors.toSet());
+	}
+
+
+	private void processDumpCommand (final String arguments) throws IOException {
+		final int fileOptionIndex = arguments.indexOf("file=");
+		if (fileOptionIndex == -1) throw new IllegalArgumentException("file path missing!");
+		final Path filePath = Paths.get(arguments.substring(fileOptionIndex + 5).trim());
+
+		final long timestamp = System.nanoTime();
+		final long rowCount = PersistenceSnapshots.dump(this.entityManagerFactory, filePath);
+		System.out.format("Dumped %d rows into %s (%d bytes) within %d ms%n", rowCount, filePath, Files.size(filePath), (System.nanoTime() - timestamp) / 1_000_000);
+	}
+
+
+	private void processRestoreCommand (final String arguments) throws IOException {
+		final int fileOptionIndex = arguments.indexOf("file=");
+		if (fileOptionIndex == -1) throw new IllegalArgumentException("file path missing!");
+		final Path filePath = Paths.get(arguments.substring(fileOptionIndex + 5).trim());
+		final Matcher batchOptionMatcher = IMPORT_OPTION_PATTERN.matcher(arguments.substring(0, fileOptionIndex));
+		final int batchSize = batchOptionMatcher.find() ? Integer.parseInt(batchOptionMatcher.group(1)) : DEFAULT_BATCH_SIZE;
+
+		final long timestamp = System.nanoTime();
+		final long rowCount = PersistenceSnapshots.restore(this.entityManagerFactory, filePath, batchSize);
+		final long duration = Math.max(1, (System.nanoTime() - timestamp) / 1_000_000);
+		System.out.format("Restored %d rows from %s within %d ms (%d rows/s)%n", rowCount, filePath, duration, rowCount * 1000 / duration);
+	}
+
+
+	private void processBlobMigrateCommand (final String arguments) throws IOException {
+		final int directoryOptionIndex = arguments.indexOf("dir=");
+		if (directoryOptionIndex == -1) throw new IllegalArgumentException("directory path missing!");
+		final DocumentBlobStore blobStore = new DocumentBlobStore(Paths.get(arguments.substring(directoryOptionIndex + 4).trim()));
+		final String[] contentColumns = this.documentContentColumns();
+
+		final long timestamp = System.nanoTime();
+		long documentCount = 0, storedCount = 0;
+		try (EntityManager entityManager = this.entityManagerFactory.createEntityManager()) {
+			for (long lastIdentity = 0, pageCount = -1; pageCount != 0; ) {
+				entityManager.getTransaction().begin();
+				try {
+					final Connection connection = entityManager.unwrap(Connection.class);
+					pageCount = 0;
+
+					try (PreparedStatement statement = connection.prepareStatement(String.format(SQL_SELECT_DOCUMENT_CONTENT, (Object[]) contentColumns))) {
+						statement.setLong(1, lastIdentity);
+						statement.setMaxRows(BLOB_MIGRATION_PAGE_SIZE);
+
+						try (ResultSet resultSet = statement.executeQuery()) {
+							for (; resultSet.next(); ++pageCount) {
+								final long documentIdentity = resultSet.getLong(1);
+								final String documentHash = resultSet.getString(2);
+								lastIdentity = documentIdentity;
+
+								if (!blobStore.contains(documentHash)) {
+									try (InputStream contentSource = resultSet.getBinaryStream(3)) {
+										if (contentSource == null) {
+											System.out.println("- document " + documentIdentity + ": content missing");
+											continue;
+										}
+
+										final String contentHash = blobStore.store(contentSource);
+										if (!contentHash.equals(documentHash)) {
+											System.out.println("- document " + documentIdentity + ": content hash " + contentHash + " does not match document hash " + documentHash);
+											continue;
+										}
+										storedCount += 1;
+									}
+								}
+							}
+						}
+					}
+
+					entityManager.getTransaction().commit();
+					documentCount += pageCount;
+				} catch (final SQLException exception) {
+					throw new PersistenceException(exception);
+				} finally {
+					if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+				}
+			}
+		}
+
+		System.out.format("Migrated %d documents into %s within %d ms: %d blobs stored%n", documentCount, blobStore.rootDirectory(), (System.nanoTime() - timestamp) / 1_000_000, storedCount);
+	}
+
+
+	private void processBlobCheckCommand (final String arguments) throws IOException {
+		final int directoryOptionIndex = arguments.indexOf("dir=");
+		if (directoryOptionIndex == -1) throw new IllegalArgumentException("directory path missing!");
+		final DocumentBlobStore blobStore = new DocumentBlobStore(Paths.get(arguments.substring(directoryOptionIndex + 4).trim()));
+		final String[] contentColumns = this.documentContentColumns();
+
+		final long timestamp = System.nanoTime();
+		final Map<String,Long> documentIdentities = new HashMap<>();
+		try (EntityManager entityManager = this.entityManagerFactory.createEntityManager()) {
+			entityManager.getTransaction().begin();
+			try (Statement statement = entityManager.unwrap(Connection.class).createStatement()) {
+				try (ResultSet resultSet = statement.executeQuery(String.format(SQL_SELECT_DOCUMENT_HASHES, (Object[]) contentColumns))) {
+					while (resultSet.next())
+						documentIdentities.put(resultSet.getString(2), resultSet.getLong(1));
+				}
+			} catch (final SQLException exception) {
+				throw new PersistenceException(exception);
+			} finally {
+				entityManager.getTransaction().rollback();
+			}
+		}
+
+		final AtomicInteger missingCount = new AtomicInteger(), corruptCount = new AtomicInteger();
+		documentIdentities.entrySet().parallelStream().forEach(entry -> {
+			try {
+				if (!blobStore.contains(entry.getKey())) {
+					missingCount.incrementAndGet();
+					System.out.println("- document " + entry.getValue() + ": blob " + entry.getKey() + " missing");
+				} else if (!blobStore.verify(entry.getKey())) {
+					corruptCount.incrementAndGet();
+					System.out.println("- document " + entry.getValue() + ": blob " + entry.getKey() + " corrupt");
+				}
+			} catch (final IOException exception) {
+				throw new UncheckedIOException(exception);
+			}
+		});
+
+		final Set<String> orphanHashes = new HashSet<>();
+		try (Stream<String> blobHashes = blobStore.hashes()) {
+			blobHashes.filter(hash -> !documentIdentities.containsKey(hash)).forEach(orphanHashes::add);
+		}
+		orphanHashes.forEach(hash -> System.out.println("- blob " + hash + " orphaned"));
+
+		System.out.format("Checked %d documents against %s within %d ms: %d missing, %d corrupt, %d orphaned%n", documentIdentities.size(), blobStore.rootDirectory(), (System.nanoTime() - timestamp) / 1_000_000, missingCount.get(), corruptCount.get(), orphanHashes.size());
+	}
+
+
+	private void processCacheStatsCommand (final String arguments) {
+		switch (arguments.trim()) {
+			case "start":
+				if (this.performanceMonitor == null) this.performanceMonitor = SecondLevelCacheControl.startProfiling(this.entityManagerFactory);
+				System.out.println("Started recording second level cache hits and misses");
+				break;
+			case "stop":
+				if (this.performanceMonitor != null) SecondLevelCacheControl.stopProfiling(this.entityManagerFactory);
+				this.performanceMonitor = null;
+				System.out.println("Stopped recording second level cache hits and misses");
+				break;
+			case "":
+				System.out.println("Second level cache statistics:");
+				for (final String line : SecondLevelCacheControl.statistics(this.entityManagerFactory, this.performanceMonitor))
+					System.out.println("- " + line);
+				System.out.println();
+				break;
+			default:
+				throw new IllegalArgumentException("illegal cache-stats argument!");
+		}
+	}
+
+
+	private void processCacheEvictCommand (final String arguments) {
+		final String[] elements = arguments.isBlank() ? new String[0] : arguments.trim().split("\\s+");
+		final Cache secondLevelCache = this.entityManagerFactory.getCache();
+
+		if (elements.length == 0) {
+			secondLevelCache.evictAll();
+			System.out.println("Evicted all entities from the second level cache");
+		} else if (elements.length == 1) {
+			final EntityType<?> entityType = this.entityType(elements[0]);
+			secondLevelCache.evict(entityType.getJavaType());
+			System.out.println("Evicted all " + entityType.getName() + " entities from the second level cache");
+		} else {
+			final EntityType<?> entityType = this.entityType(elements[0]);
+			final long entityIdentity = Long.parseLong(elements[1]);
+			secondLevelCache.evict(entityType.getJavaType(), entityIdentity);
+			System.out.println("Evicted " + entityType.getName() + " entity with ID " + entityIdentity + " from the second level cache");
+		}
+	}
+
+
+	private EntityType<?> entityType (final String entityName) {
+		return this.entityManagerFactory.getMetamodel().getEntities()
+			.stream()
+			.filter(entityType -> entityType.getName().equalsIgnoreCase(entityName))
+			.findAny()
+			.orElseThrow(() -> new IllegalArgumentException("entity type not found!"));
+	}
+
+
+
+	/**
+	 * Import record type.
+	 * @param lineNumber the line number within the import file
+	 * @param line the line within the import file
+	 * @param key the optional key other records may use to reference the imported entity, or {@code null} for none
+	 * @param template the entity template, or {@code null} if the record is rejected
+	 * @param rejection the rejection reason, or {@code null} if the record is accepted
+	 */
+	static private record ImportRecord (long lineNumber, String line, String key, AbstractEntity template, String rejection) {}
 }
\ No newline at end of file
@@ -1,7 +1,18 @@
 package edu.sb.dinner_planner.rdbms;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
 import edu.sb.dinner_planner.persistence.AbstractEntity;
 import edu.sb.tool.Copyright;
 import jakarta.json.bind.Jsonb;
@@ -17,53 +28,218 @@ import jakarta.validation.ValidatorFactory;
 
 /**
  * JPA sanity-check non-interactive text application for persistence unit "local_database".
+ * The entities are paged through in chunks which are validated in parallel using a separate entity
+ * manager per chunk; validation problems are printed as they are found. Full checks page through the
+ * entities ordered by identity. Incremental checks page through the entities modified since the last
+ * successful unrestricted run, ordered by modification timestamp and identity; the {@code --full} switch,
+ * or a missing checkpoint, forces a full check. Only unrestricted runs (without identity range) store
+ * the latest modification timestamp and identity as a checkpoint in the local file
+ * {@code sanity-check.properties}, because the checkpoint of a restricted run wouldn't cover the
+ * entities outside it's range. As modification timestamps are assigned by the application before the
+ * transaction commits, an entity may become visible after entities with later timestamps have already
+ * been checked; incremental checks therefore re-scan an overlap window below the checkpoint, which
+ * should exceed the maximum transaction duration, and re-validate the entities modified within it.
  */
 @Copyright(year=2022, holders="Sascha Baumeister")
 public class PersistenceSanityCheckApp {
-	static private final String QUERY_ENTITIES = "select e from AbstractEntity as e where e.identity >= :minIdentity and e.identity <= :maxIdentity";
+	static private final String QUERY_IDENTITIES = "select e.identity from AbstractEntity as e where e.identity >= :minIdentity and e.identity <= :maxIdentity order by e.identity";
+	static private final String QUERY_CHANGES = "select e.identity, e.modified from AbstractEntity as e where e.identity >= :minIdentity and e.identity <= :maxIdentity and (e.modified > :modified or (e.modified = :modified and e.identity > :identity)) order by e.modified, e.identity";
+	static private final String QUERY_LATEST_CHANGE = "select e.identity, e.modified from AbstractEntity as e order by e.modified desc, e.identity desc";
+	static private final String QUERY_ENTITIES = "select e from AbstractEntity as e where e.identity in :identities";
+	static private final Path CHECKPOINT_PATH = Paths.get("sanity-check.properties");
+	static private final String FULL_SWITCH = "--full";
+	static private final String OVERLAP_SWITCH = "--overlap=";
+	static private final long DEFAULT_OVERLAP = 10 * 60 * 1000L;
 	static public final EntityManagerFactory ENTITY_MANAGER_FACTORY = Persistence.createEntityManagerFactory("local_database");
 	static private final ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
 	static private final Jsonb JSON_MARSHALER = JsonbBuilder.create();
+	static private final int CHUNK_SIZE = 500;
 
 
 	/**
-	 * Application entry point.
+	 * Application entry point. The given arguments are expected to be the JSON mode (default is false), the
+	 * minimum identity (default is 1), and the maximum identity (default is unlimited), optionally combined with
+	 * the {@code --full} switch, and the {@code --overlap=<milliseconds>} switch defining the window re-scanned
+	 * below the checkpoint (default is 10 minutes). The checkpoint is only stored if neither identity limit is given.
 	 * @param args the runtime arguments
+	 * @throws IllegalArgumentException if the given overlap is illegal
+	 * @throws IOException if there is an I/O related problem accessing the checkpoint file
+	 * @throws InterruptedException if the thread is interrupted while waiting for chunk validations
 	 */
-	static public void main (final String[] args) {
-		final boolean jsonMode = args.length == 0 ? false : Boolean.parseBoolean(args[0]);
-		final long minIdentity = args.length <= 1 ? 1L : Long.parseLong(args[1]);
-		final long maxIdentity = args.length <= 2 ? Long.MAX_VALUE : Long.parseLong(args[2]);
+	static public void main (final String[] args) throws IllegalArgumentException, IOException, InterruptedException {
+		final boolean fullMode = Arrays.asList(args).contains(FULL_SWITCH);
+		final long overlap = Arrays.stream(args).filter(arg -> arg.startsWith(OVERLAP_SWITCH)).mapToLong(arg -> Long.parseLong(arg.substring(OVERLAP_SWITCH.length()))).reduce((left, right) -> right).orElse(DEFAULT_OVERLAP);
+		if (overlap < 0) throw new IllegalArgumentException("negative overlap: " + overlap);
+		final String[] positionalArgs = Arrays.stream(args).filter(arg -> !arg.equals(FULL_SWITCH) && !arg.startsWith(OVERLAP_SWITCH)).toArray(String[]::new);
+		final boolean jsonMode = positionalArgs.length == 0 ? false : Boolean.parseBoolean(positionalArgs[0]);
+		final long minIdentity = positionalArgs.length <= 1 ? 1L : Long.parseLong(positionalArgs[1]);
+		final long maxIdentity = positionalArgs.length <= 2 ? Long.MAX_VALUE : Long.parseLong(positionalArgs[2]);
+		final boolean restricted = minIdentity > 1L || maxIdentity < Long.MAX_VALUE;
+		final long[] checkpoint = fullMode ? null : loadCheckpoint();
 
+		final Validator validator = VALIDATOR_FACTORY.getValidator();
+		final ForkJoinPool workerPool = new ForkJoinPool();
+		final int chunkPermitCount = 2 * workerPool.getParallelism();
+		final Semaphore chunkPermits = new Semaphore(chunkPermitCount);
+		final LongAdder entityCount = new LongAdder(), problemCount = new LongAdder(), failedChunkCount = new LongAdder();
+		final long timestamp = System.nanoTime();
+		final long[] keyset, nextCheckpoint;
+		long chunkCount = 0;
+
+		System.out.println(checkpoint == null ? "full check" : "incremental check of entities modified since " + checkpoint[0] + " minus " + overlap + " ms overlap");
+		System.out.println(jsonMode ? "entity validation problems & entities (JSON):" : "entity validation problems:");
+		try (EntityManager entityManager = ENTITY_MANAGER_FACTORY.createEntityManager()) {
+			keyset = checkpoint == null ? latestChange(entityManager) : new long[] { checkpoint[0] < Long.MIN_VALUE + overlap ? Long.MIN_VALUE : checkpoint[0] - overlap, Long.MIN_VALUE };
+			long chunkMinIdentity = minIdentity;
+			for (boolean chunksRemaining = true; chunksRemaining; ++chunkCount) {
+				final List<Long> identities;
+				if (checkpoint == null) {
+					identities = entityManager
+						.createQuery(QUERY_IDENTITIES, Long.class)
+						.setParameter("minIdentity", chunkMinIdentity)
+						.setParameter("maxIdentity", maxIdentity)
+						.setMaxResults(CHUNK_SIZE)
+						.getResultList();
+					if (identities.isEmpty()) break;
+
+					final long upperIdentity = identities.get(identities.size() - 1);
+					chunksRemaining = identities.size() == CHUNK_SIZE && upperIdentity < maxIdentity;
+					chunkMinIdentity = upperIdentity + 1;
+				} else {
+					final List<Object[]> changes = entityManager
+						.createQuery(QUERY_CHANGES, Object[].class)
+						.setParameter("minIdentity", minIdentity)
+						.setParameter("maxIdentity", maxIdentity)
+						.setParameter("modified", keyset[0])
+						.setParameter("identity", keyset[1])
+						.setMaxResults(CHUNK_SIZE)
+						.getResultList();
+					if (changes.isEmpty()) break;
+
+					identities = changes.stream().map(change -> ((Number) change[0]).longValue()).toList();
+					final Object[] lastChange = changes.get(changes.size() - 1);
+					keyset[0] = ((Number) lastChange[1]).longValue();
+					keyset[1] = ((Number) lastChange[0]).longValue();
+					chunksRemaining = changes.size() == CHUNK_SIZE;
+				}
+
+				chunkPermits.acquire();
+				workerPool.execute(() -> {
+					try {
+						validateChunk(identities, validator, jsonMode, entityCount, problemCount);
+					} catch (final RuntimeException exception) {
+						failedChunkCount.increment();
+						System.out.println("chunk " + identities.get(0) + "-" + identities.get(identities.size() - 1) + ": " + exception);
+					} finally {
+						chunkPermits.release();
+					}
+				});
+			}
+
+			chunkPermits.acquire(chunkPermitCount);
+			nextCheckpoint = checkpoint == null || Arrays.compare(keyset, checkpoint) > 0 ? keyset : checkpoint;
+		} finally {
+			workerPool.shutdown();
+		}
+
+		final long duration = Math.max(1, (System.nanoTime() - timestamp) / 1_000_000);
+		if (problemCount.sum() == 0) System.out.println("none");
+		System.out.println();
+
+		System.out.format("checked %d entities in %d chunks within %d ms (%d entities/s), %d validation problems%n", entityCount.sum(), chunkCount, duration, entityCount.sum() * 1000 / duration, problemCount.sum());
+
+		if (restricted) {
+			System.out.println("checkpoint not updated because of the restricted identity range");
+		} else if (failedChunkCount.sum() == 0) {
+			storeCheckpoint(nextCheckpoint);
+		} else {
+			System.out.println("checkpoint not updated because of " + failedChunkCount.sum() + " failed chunks");
+		}
+	}
+
+
+	/**
+	 * Returns the checkpoint stored in the checkpoint file, or {@code null} if there is none.
+	 * @return the last checked modification timestamp and identity, or {@code null} for none
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private long[] loadCheckpoint () throws IOException {
+		if (!Files.exists(CHECKPOINT_PATH)) return null;
+
+		final Properties properties = new Properties();
+		try (InputStream byteSource = Files.newInputStream(CHECKPOINT_PATH)) {
+			properties.load(byteSource);
+		}
+
+		return new long[] { Long.parseLong(properties.getProperty("modified")), Long.parseLong(properties.getProperty("identity")) };
+	}
+
+
+	/**
+	 * Returns the modification timestamp and identity of the latest modified entity, which a full check
+	 * stores as it's checkpoint; entities modified while the check runs are therefore covered by the
+	 * next incremental check.
+	 * @param entityManager the entity manager
+	 * @return the latest modification timestamp and identity, or the initial checkpoint if there are no entities
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private long[] latestChange (final EntityManager entityManager) throws NullPointerException {
+		final List<Object[]> changes = entityManager
+			.createQuery(QUERY_LATEST_CHANGE, Object[].class)
+			.setMaxResults(1)
+			.getResultList();
+		if (changes.isEmpty()) return new long[] { Long.MIN_VALUE, 0L };
+
+		return new long[] { ((Number) changes.get(0)[1]).longValue(), ((Number) changes.get(0)[0]).longValue() };
+	}
+
+
+	/**
+	 * Stores the given checkpoint in the checkpoint file.
+	 * @param checkpoint the last checked modification timestamp and identity
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void storeCheckpoint (final long[] checkpoint) throws IOException {
+		final Properties properties = new Properties();
+		properties.setProperty("modified", Long.toString(checkpoint[0]));
+		properties.setProperty("identity", Long.toString(checkpoint[1]));
+
+		try (OutputStream byteSink = Files.newOutputStream(CHECKPOINT_PATH)) {
+			properties.store(byteSink, "sanity check checkpoint");
+		}
+	}
+
+
+	/**
+	 * Validates the entities with the given identities using a separate entity manager, and prints the
+	 * validation problems found, plus the entities in JSON format if required.
+	 * @param identities the entity identities
+	 * @param validator the validator
+	 * @param jsonMode whether or not the entities shall be printed in JSON format
+	 * @param entityCount the entity counter
+	 * @param problemCount the validation problem counter
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static private void validateChunk (final List<Long> identities, final Validator validator, final boolean jsonMode, final LongAdder entityCount, final LongAdder problemCount) throws NullPointerException {
 		try (EntityManager entityManager = ENTITY_MANAGER_FACTORY.createEntityManager()) {
 			final List<AbstractEntity> entities = entityManager
 				.createQuery(QUERY_ENTITIES, AbstractEntity.class)
-				.setParameter("minIdentity", minIdentity)
-				.setParameter("maxIdentity", maxIdentity)
+				.setParameter("identities", identities)
+				.setHint("eclipselink.maintain-cache", Boolean.FALSE)
 				.getResultList();
 
-			System.out.println("entities (class & ID data only):");
-			for (final AbstractEntity entity : entities)
-				System.out.println(entity);
-			System.out.println();
-
-			System.out.println("entity validation problems:");
-			final Validator validator = VALIDATOR_FACTORY.getValidator();
-			boolean noValidationProblems = true;
+			final StringBuilder jsonOutput = new StringBuilder();
 			for (final AbstractEntity entity : entities) {
 				final Set<ConstraintViolation<AbstractEntity>> constraintViolations = validator.validate(entity);
-				noValidationProblems &= constraintViolations.isEmpty();
-				if (!constraintViolations.isEmpty()) System.out.println(entity + ": " + constraintViolations);
-			}
-			if (noValidationProblems) System.out.println("none");
-			System.out.println();
-
-			if (jsonMode) {
-				System.out.println("entities (JSON):");
-				for (final AbstractEntity entity : entities)
-					System.out.println(JSON_MARSHALER.toJson(entity));
-				System.out.println();
+				if (!constraintViolations.isEmpty()) {
+					problemCount.add(constraintViolations.size());
+					System.out.println(entity + ": " + constraintViolations);
+				}
+				if (jsonMode) jsonOutput.append(JSON_MARSHALER.toJson(entity)).append(System.lineSeparator());
 			}
+
+			if (jsonMode) System.out.print(jsonOutput);
+			entityCount.add(entities.size());
 		}
 	}
 }
\ No newline at end of file
@@ -0,0 +1,756 @@
+package edu.sb.dinner_planner.rdbms;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.helper.DatabaseTable;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.mappings.AggregateCollectionMapping;
+import org.eclipse.persistence.mappings.DatabaseMapping;
+import org.eclipse.persistence.mappings.DirectCollectionMapping;
+import org.eclipse.persistence.mappings.ManyToManyMapping;
+import org.eclipse.persistence.sequencing.TableSequence;
+import edu.sb.tool.Copyright;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.PersistenceException;
+
+
+/**
+ * Facade dumping and restoring binary snapshots of all tables of a persistence unit, i.e. the entity tables of all
+ * entity types including their document content, their association and element collection tables, and the sequence
+ * tables used to generate their identities. A snapshot
+ * is a ZIP file containing one deflated, CRC checked entry per table, plus a manifest listing the tables grouped
+ * into dependency levels derived from the database's foreign key metadata. Dumps are streamed table by table
+ * within a single transaction; binary content is streamed in chunks and never held in memory as a whole. Restores
+ * verify the checksum and column header of every table entry in parallel before touching the database, delete the
+ * existing rows within a single transaction, and then restore the tables of each dependency level in parallel, each
+ * within it's own transaction, using batched inserts; binary values exceeding the chunk size are spooled into
+ * temporary files and inserted row by row, which bounds the memory required.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class PersistenceSnapshots {
+	static private final String MANIFEST_ENTRY_NAME = "manifest.properties";
+	static private final String TABLE_ENTRY_NAME = "tables/%s.bin";
+	static private final String SQL_SELECT_ALL = "SELECT * FROM %s";
+	static private final String SQL_SELECT_NONE = "SELECT * FROM %s WHERE 1 = 0";
+	static private final String SQL_DELETE_ALL = "DELETE FROM %s";
+	static private final String SQL_INSERT = "INSERT INTO %s (%s) VALUES (%s)";
+	static private final int FORMAT_VERSION = 1;
+	static private final int FETCH_SIZE = 1000;
+	static private final int CHUNK_SIZE = 0x10000;
+	static private final long BATCH_BYTE_LIMIT = 0x1000000L;
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private PersistenceSnapshots () {}
+
+
+	/**
+	 * Dumps all tables of the given entity manager factory's persistence unit into a snapshot file at the given path.
+	 * @param entityManagerFactory the entity manager factory
+	 * @param snapshotPath the snapshot file path
+	 * @return the number of rows dumped
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 * @throws PersistenceException if there is a database related problem
+	 */
+	static public long dump (final EntityManagerFactory entityManagerFactory, final Path snapshotPath) throws NullPointerException, IOException, PersistenceException {
+		final Set<String> tableNames = tableNames(entityManagerFactory);
+		final Properties manifest = new Properties();
+		long rowCount = 0;
+
+		try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+			entityManager.getTransaction().begin();
+			try {
+				final Connection connection = entityManager.unwrap(Connection.class);
+				final List<Set<String>> dependencyLevels = dependencyLevels(connection.getMetaData(), tableNames);
+
+				try (ZipOutputStream zipSink = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(snapshotPath), CHUNK_SIZE))) {
+					zipSink.setLevel(Deflater.BEST_SPEED);
+
+					for (final String tableName : tableNames) {
+						zipSink.putNextEntry(new ZipEntry(String.format(TABLE_ENTRY_NAME, tableName)));
+						final DataOutputStream dataSink = new DataOutputStream(new BufferedOutputStream(zipSink, CHUNK_SIZE));
+						final long tableRowCount = dumpTable(connection, tableName, dataSink);
+						dataSink.flush();
+						zipSink.closeEntry();
+
+						manifest.setProperty("rows." + tableName, Long.toString(tableRowCount));
+						rowCount += tableRowCount;
+						System.out.format("- dumped %d rows of table %s%n", tableRowCount, tableName);
+					}
+
+					manifest.setProperty("version", Integer.toString(FORMAT_VERSION));
+					for (int level = 0; level < dependencyLevels.size(); ++level)
+						manifest.setProperty("level." + level, String.join(",", dependencyLevels.get(level)));
+
+					zipSink.putNextEntry(new ZipEntry(MANIFEST_ENTRY_NAME));
+					manifest.store(zipSink, "persistence snapshot");
+					zipSink.closeEntry();
+				}
+			} catch (final SQLException exception) {
+				throw new PersistenceException(exception);
+			} finally {
+				entityManager.getTransaction().rollback();
+			}
+		}
+
+		return rowCount;
+	}
+
+
+	/**
+	 * Restores all tables of the given entity manager factory's persistence unit from the snapshot file at the
+	 * given path. The checksums and column headers of all table entries are verified beforehand, so an invalid
+	 * snapshot leaves the database unchanged. The existing rows of the snapshot's tables are then deleted within
+	 * a single transaction, and the tables of each dependency level are restored in parallel, each within it's
+	 * own transaction; a database failure while restoring leaves the tables of the failed and subsequent levels
+	 * incomplete, which requires repeating the restore. The second level cache and the preallocated sequence
+	 * values are cleared afterwards, as the restored sequence tables define the next identities.
+	 * @param entityManagerFactory the entity manager factory
+	 * @param snapshotPath the snapshot file path
+	 * @param batchSize the maximum number of rows per insert batch
+	 * @return the number of rows restored
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the given batch size is negative or zero, or if the given snapshot is invalid
+	 * @throws IOException if there is an I/O related problem
+	 * @throws PersistenceException if there is a database related problem
+	 */
+	static public long restore (final EntityManagerFactory entityManagerFactory, final Path snapshotPath, final int batchSize) throws NullPointerException, IllegalArgumentException, IOException, PersistenceException {
+		if (batchSize <= 0) throw new IllegalArgumentException("batch size must be positive!");
+
+		try (ZipFile zipFile = new ZipFile(snapshotPath.toFile())) {
+			final ZipEntry manifestEntry = zipFile.getEntry(MANIFEST_ENTRY_NAME);
+			if (manifestEntry == null) throw new IllegalArgumentException("snapshot manifest missing!");
+
+			final Properties manifest = new Properties();
+			try (InputStream byteSource = zipFile.getInputStream(manifestEntry)) {
+				manifest.load(byteSource);
+			}
+			if (!Integer.toString(FORMAT_VERSION).equals(manifest.getProperty("version"))) throw new IllegalArgumentException("unsupported snapshot version!");
+
+			final List<List<String>> dependencyLevels = new ArrayList<>();
+			while (manifest.containsKey("level." + dependencyLevels.size())) {
+				final String levelText = manifest.getProperty("level." + dependencyLevels.size());
+				dependencyLevels.add(levelText.isEmpty() ? List.of() : List.of(levelText.split(",")));
+			}
+
+			final Map<String,List<Column>> tableColumns;
+			try {
+				tableColumns = dependencyLevels
+					.stream()
+					.flatMap(List::stream)
+					.parallel()
+					.collect(Collectors.toMap(Function.identity(), tableName -> verifyTable(zipFile, tableName)));
+			} catch (final UncheckedIOException exception) {
+				throw exception.getCause();
+			}
+
+			try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+				entityManager.getTransaction().begin();
+				try {
+					final Connection connection = entityManager.unwrap(Connection.class);
+					for (final Map.Entry<String,List<Column>> entry : tableColumns.entrySet())
+						verifyColumns(connection, entry.getKey(), entry.getValue());
+
+					try (Statement statement = connection.createStatement()) {
+						for (int level = dependencyLevels.size() - 1; level >= 0; --level)
+							for (final String tableName : dependencyLevels.get(level))
+								statement.executeUpdate(String.format(SQL_DELETE_ALL, tableName));
+					}
+
+					entityManager.getTransaction().commit();
+				} catch (final SQLException exception) {
+					throw new PersistenceException(exception);
+				} finally {
+					if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+				}
+			}
+
+			long rowCount = 0;
+			try {
+				for (final List<String> tableNames : dependencyLevels) {
+					rowCount += tableNames
+						.parallelStream()
+						.mapToLong(tableName -> {
+							final ZipEntry tableEntry = zipFile.getEntry(String.format(TABLE_ENTRY_NAME, tableName));
+							final long tableRowCount = restoreTable(entityManagerFactory, zipFile, tableEntry, tableName, batchSize);
+							System.out.format("- restored %d rows of table %s%n", tableRowCount, tableName);
+							return tableRowCount;
+						})
+						.sum();
+				}
+			} catch (final UncheckedIOException exception) {
+				throw exception.getCause();
+			} finally {
+				entityManagerFactory.getCache().evictAll();
+				JpaHelper.getServerSession(entityManagerFactory).getSequencingControl().resetSequencing();
+			}
+
+			return rowCount;
+		}
+	}
+
+
+	/**
+	 * Returns the qualified names of the tables of the given entity manager factory's persistence unit,
+	 * including association and element collection tables, and the sequence tables of table based identity
+	 * generation; the latter ensure that identities generated after a restore don't collide with restored ones.
+	 * @param entityManagerFactory the entity manager factory
+	 * @return the table names
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private Set<String> tableNames (final EntityManagerFactory entityManagerFactory) throws NullPointerException {
+		final Set<String> tableNames = new TreeSet<>();
+		for (final ClassDescriptor descriptor : JpaHelper.getServerSession(entityManagerFactory).getDescriptors().values()) {
+			if (descriptor.isAggregateDescriptor() || descriptor.isAggregateCollectionDescriptor()) continue;
+
+			for (final DatabaseTable table : descriptor.getTables())
+				tableNames.add(table.getQualifiedName());
+
+			if (descriptor.usesSequenceNumbers() && descriptor.getSequence() instanceof TableSequence)
+				tableNames.add(((TableSequence) descriptor.getSequence()).getTable().getQualifiedName());
+
+			for (final DatabaseMapping mapping : descriptor.getMappings()) {
+				if (mapping instanceof ManyToManyMapping) tableNames.add(((ManyToManyMapping) mapping).getRelationTable().getQualifiedName());
+				if (mapping instanceof DirectCollectionMapping) tableNames.add(((DirectCollectionMapping) mapping).getReferenceTable().getQualifiedName());
+				if (mapping instanceof AggregateCollectionMapping)
+					for (final DatabaseTable table : ((AggregateCollectionMapping) mapping).getReferenceDescriptor().getTables())
+						tableNames.add(table.getQualifiedName());
+			}
+		}
+
+		return tableNames;
+	}
+
+
+	/**
+	 * Returns the given tables grouped into dependency levels, with every table only referencing tables of lower
+	 * levels via foreign keys. Tables involved in foreign key cycles are grouped into the last level.
+	 * @param metaData the database meta data
+	 * @param tableNames the table names
+	 * @return the dependency levels
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private List<Set<String>> dependencyLevels (final DatabaseMetaData metaData, final Set<String> tableNames) throws NullPointerException, SQLException {
+		final Map<String,String> tableNamesByKey = new HashMap<>();
+		for (final String tableName : tableNames)
+			tableNamesByKey.put(tableName.toUpperCase(), tableName);
+
+		final Map<String,Set<String>> referencedTableNames = new HashMap<>();
+		for (final String tableName : tableNames) {
+			final Set<String> referenced = new LinkedHashSet<>();
+			final String simpleName = tableName.substring(tableName.lastIndexOf('.') + 1);
+			for (final String candidateName : new LinkedHashSet<>(List.of(simpleName, simpleName.toUpperCase(), simpleName.toLowerCase()))) {
+				try (ResultSet resultSet = metaData.getImportedKeys(null, null, candidateName)) {
+					while (resultSet.next()) {
+						final String referencedKey = resultSet.getString("PKTABLE_NAME").toUpperCase();
+						for (final Map.Entry<String,String> entry : tableNamesByKey.entrySet())
+							if (entry.getKey().equals(referencedKey) || entry.getKey().endsWith("." + referencedKey)) referenced.add(entry.getValue());
+					}
+				}
+				if (!referenced.isEmpty()) break;
+			}
+
+			referenced.remove(tableName);
+			referencedTableNames.put(tableName, referenced);
+		}
+
+		final List<Set<String>> dependencyLevels = new ArrayList<>();
+		final Set<String> pendingTableNames = new TreeSet<>(tableNames), levelledTableNames = new LinkedHashSet<>();
+		while (!pendingTableNames.isEmpty()) {
+			final Set<String> level = new TreeSet<>();
+			for (final String tableName : pendingTableNames)
+				if (levelledTableNames.containsAll(referencedTableNames.get(tableName))) level.add(tableName);
+
+			if (level.isEmpty()) {
+				System.out.println("- foreign key cycle among tables " + pendingTableNames);
+				level.addAll(pendingTableNames);
+			}
+
+			dependencyLevels.add(level);
+			levelledTableNames.addAll(level);
+			pendingTableNames.removeAll(level);
+		}
+
+		return dependencyLevels;
+	}
+
+
+	/**
+	 * Dumps the rows of the given table into the given data sink.
+	 * @param connection the database connection
+	 * @param tableName the table name
+	 * @param dataSink the data sink
+	 * @return the number of rows dumped
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws SQLException if there is a database related problem
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private long dumpTable (final Connection connection, final String tableName, final DataOutputStream dataSink) throws NullPointerException, SQLException, IOException {
+		long rowCount = 0;
+		try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			statement.setFetchSize(FETCH_SIZE);
+
+			try (ResultSet resultSet = statement.executeQuery(String.format(SQL_SELECT_ALL, tableName))) {
+				final ResultSetMetaData metaData = resultSet.getMetaData();
+				final int[] columnTypes = new int[metaData.getColumnCount()];
+				dataSink.writeInt(columnTypes.length);
+				for (int index = 0; index < columnTypes.length; ++index) {
+					columnTypes[index] = metaData.getColumnType(index + 1);
+					dataSink.writeUTF(metaData.getColumnName(index + 1));
+					dataSink.writeInt(columnTypes[index]);
+				}
+
+				final byte[] buffer = new byte[CHUNK_SIZE];
+				for (; resultSet.next(); ++rowCount) {
+					dataSink.writeBoolean(true);
+					for (int index = 0; index < columnTypes.length; ++index)
+						writeValue(resultSet, index + 1, columnTypes[index], dataSink, buffer);
+				}
+				dataSink.writeBoolean(false);
+			}
+		}
+
+		return rowCount;
+	}
+
+
+	/**
+	 * Writes the given column value of the given result set's current row into the given data sink,
+	 * preceded by a flag indicating whether or not the value is non-null.
+	 * @param resultSet the result set
+	 * @param column the column index, starting with one
+	 * @param columnType the JDBC column type
+	 * @param dataSink the data sink
+	 * @param buffer the buffer used to stream binary content
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws SQLException if there is a database related problem
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void writeValue (final ResultSet resultSet, final int column, final int columnType, final DataOutputStream dataSink, final byte[] buffer) throws NullPointerException, SQLException, IOException {
+		switch (columnType) {
+			case Types.BIT, Types.BOOLEAN: {
+				final boolean value = resultSet.getBoolean(column);
+				dataSink.writeBoolean(!resultSet.wasNull());
+				if (!resultSet.wasNull()) dataSink.writeBoolean(value);
+				break;
+			}
+			case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT: {
+				final long value = resultSet.getLong(column);
+				dataSink.writeBoolean(!resultSet.wasNull());
+				if (!resultSet.wasNull()) dataSink.writeLong(value);
+				break;
+			}
+			case Types.REAL, Types.FLOAT, Types.DOUBLE: {
+				final double value = resultSet.getDouble(column);
+				dataSink.writeBoolean(!resultSet.wasNull());
+				if (!resultSet.wasNull()) dataSink.writeDouble(value);
+				break;
+			}
+			case Types.DATE, Types.TIME, Types.TIMESTAMP: {
+				final Timestamp value = resultSet.getTimestamp(column);
+				dataSink.writeBoolean(value != null);
+				if (value != null) {
+					dataSink.writeLong(value.getTime());
+					dataSink.writeInt(value.getNanos());
+				}
+				break;
+			}
+			case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB: {
+				try (InputStream value = resultSet.getBinaryStream(column)) {
+					dataSink.writeBoolean(value != null);
+					if (value != null) {
+						for (int length = value.readNBytes(buffer, 0, buffer.length); length > 0; length = value.readNBytes(buffer, 0, buffer.length)) {
+							dataSink.writeInt(length);
+							dataSink.write(buffer, 0, length);
+						}
+						dataSink.writeInt(0);
+					}
+				}
+				break;
+			}
+			default: {
+				final String value = resultSet.getString(column);
+				dataSink.writeBoolean(value != null);
+				if (value != null) {
+					final byte[] bytes = value.getBytes(UTF_8);
+					dataSink.writeInt(bytes.length);
+					dataSink.write(bytes);
+				}
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Verifies the given table's snapshot entry by streaming it completely and comparing it's checksum,
+	 * without touching the database.
+	 * @param zipFile the snapshot file
+	 * @param tableName the table name
+	 * @return the entry's column header
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the snapshot entry is missing or corrupt
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 */
+	static private List<Column> verifyTable (final ZipFile zipFile, final String tableName) throws NullPointerException, IllegalArgumentException, UncheckedIOException {
+		final ZipEntry tableEntry = zipFile.getEntry(String.format(TABLE_ENTRY_NAME, tableName));
+		if (tableEntry == null) throw new IllegalArgumentException("snapshot table " + tableName + " missing!");
+
+		try {
+			final CheckedInputStream checkedSource = new CheckedInputStream(zipFile.getInputStream(tableEntry), new CRC32());
+			final List<Column> columns;
+			try (DataInputStream dataSource = new DataInputStream(new BufferedInputStream(checkedSource, CHUNK_SIZE))) {
+				columns = readColumns(dataSource);
+				dataSource.transferTo(OutputStream.nullOutputStream());
+			}
+			if (checkedSource.getChecksum().getValue() != tableEntry.getCrc()) throw new IllegalArgumentException("snapshot table " + tableName + " is corrupt!");
+
+			return columns;
+		} catch (final IOException exception) {
+			throw new UncheckedIOException(exception);
+		}
+	}
+
+
+	/**
+	 * Verifies that the given table exists, and that it's columns match the given column header.
+	 * @param connection the database connection
+	 * @param tableName the table name
+	 * @param columns the column header
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the column header doesn't match the table
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private void verifyColumns (final Connection connection, final String tableName, final List<Column> columns) throws NullPointerException, IllegalArgumentException, SQLException {
+		final List<Column> tableColumns = new ArrayList<>();
+		try (Statement statement = connection.createStatement()) {
+			try (ResultSet resultSet = statement.executeQuery(String.format(SQL_SELECT_NONE, tableName))) {
+				final ResultSetMetaData metaData = resultSet.getMetaData();
+				for (int index = 0; index < metaData.getColumnCount(); ++index)
+					tableColumns.add(new Column(metaData.getColumnName(index + 1).toUpperCase(), metaData.getColumnType(index + 1)));
+			}
+		}
+
+		final List<Column> snapshotColumns = columns.stream().map(column -> new Column(column.name().toUpperCase(), column.type())).toList();
+		if (!tableColumns.equals(snapshotColumns)) throw new IllegalArgumentException("snapshot table " + tableName + " doesn't match the table's columns!");
+	}
+
+
+	/**
+	 * Reads a column header from the given data source.
+	 * @param dataSource the data source
+	 * @return the column header
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private List<Column> readColumns (final DataInputStream dataSource) throws NullPointerException, IOException {
+		final int columnCount = dataSource.readInt();
+		if (columnCount < 0) throw new IOException("invalid column count!");
+
+		final List<Column> columns = new ArrayList<>();
+		for (int index = 0; index < columnCount; ++index)
+			columns.add(new Column(dataSource.readUTF(), dataSource.readInt()));
+		return columns;
+	}
+
+
+	/**
+	 * Restores the rows of the given table from the given snapshot entry, using a separate entity manager
+	 * and transaction.
+	 * @param entityManagerFactory the entity manager factory
+	 * @param zipFile the snapshot file
+	 * @param tableEntry the snapshot entry
+	 * @param tableName the table name
+	 * @param batchSize the maximum number of rows per insert batch
+	 * @return the number of rows restored
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the snapshot entry is corrupt
+	 * @throws UncheckedIOException if there is an I/O related problem
+	 * @throws PersistenceException if there is a database related problem
+	 */
+	static private long restoreTable (final EntityManagerFactory entityManagerFactory, final ZipFile zipFile, final ZipEntry tableEntry, final String tableName, final int batchSize) throws NullPointerException, IllegalArgumentException, UncheckedIOException, PersistenceException {
+		try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+			entityManager.getTransaction().begin();
+			try {
+				final long rowCount = restoreTable(entityManager.unwrap(Connection.class), zipFile, tableEntry, tableName, batchSize);
+				entityManager.getTransaction().commit();
+				return rowCount;
+			} catch (final SQLException exception) {
+				throw new PersistenceException(exception);
+			} catch (final IOException exception) {
+				throw new UncheckedIOException(exception);
+			} finally {
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+			}
+		}
+	}
+
+
+	/**
+	 * Restores the rows of the given table from the given snapshot entry, using the given connection.
+	 * Rows containing spooled binary values are inserted individually after executing the pending batch.
+	 * The entry's checksum is verified again before returning.
+	 * @param connection the database connection
+	 * @param zipFile the snapshot file
+	 * @param tableEntry the snapshot entry
+	 * @param tableName the table name
+	 * @param batchSize the maximum number of rows per insert batch
+	 * @return the number of rows restored
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalArgumentException if the snapshot entry is corrupt
+	 * @throws IOException if there is an I/O related problem
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private long restoreTable (final Connection connection, final ZipFile zipFile, final ZipEntry tableEntry, final String tableName, final int batchSize) throws NullPointerException, IllegalArgumentException, IOException, SQLException {
+		final CheckedInputStream checkedSource = new CheckedInputStream(zipFile.getInputStream(tableEntry), new CRC32());
+		long rowCount = 0;
+
+		try (DataInputStream dataSource = new DataInputStream(new BufferedInputStream(checkedSource, CHUNK_SIZE))) {
+			final List<Column> columns = readColumns(dataSource);
+			final String columnNames = columns.stream().map(Column::name).collect(Collectors.joining(","));
+			final String sql = String.format(SQL_INSERT, tableName, columnNames, String.join(",", Collections.nCopies(columns.size(), "?")));
+
+			try (PreparedStatement statement = connection.prepareStatement(sql)) {
+				final Object[] values = new Object[columns.size()];
+				int batchRowCount = 0;
+				long batchByteCount = 0;
+				for (; dataSource.readBoolean(); ++rowCount) {
+					try {
+						boolean spooled = false;
+						for (int index = 0; index < values.length; ++index) {
+							values[index] = readValue(dataSource, columns.get(index).type());
+							spooled |= values[index] instanceof Path;
+						}
+
+						if (spooled) {
+							if (batchRowCount > 0) statement.executeBatch();
+							batchRowCount = 0;
+							batchByteCount = 0;
+							insertSpooledRow(statement, columns, values);
+						} else {
+							for (int index = 0; index < values.length; ++index)
+								batchByteCount += setValue(statement, index + 1, columns.get(index).type(), values[index]);
+							statement.addBatch();
+
+							if (++batchRowCount >= batchSize || batchByteCount >= BATCH_BYTE_LIMIT) {
+								statement.executeBatch();
+								batchRowCount = 0;
+								batchByteCount = 0;
+							}
+						}
+					} finally {
+						for (int index = 0; index < values.length; ++index) {
+							if (values[index] instanceof Path) Files.deleteIfExists((Path) values[index]);
+							values[index] = null;
+						}
+					}
+				}
+				if (batchRowCount > 0) statement.executeBatch();
+			}
+
+			dataSource.transferTo(OutputStream.nullOutputStream());
+		}
+		if (checkedSource.getChecksum().getValue() != tableEntry.getCrc()) throw new IllegalArgumentException("snapshot table " + tableName + " is corrupt!");
+
+		return rowCount;
+	}
+
+
+	/**
+	 * Inserts a single row containing spooled binary values using the given statement, streaming the spooled
+	 * values from their temporary files.
+	 * @param statement the statement
+	 * @param columns the column header
+	 * @param values the row values
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private void insertSpooledRow (final PreparedStatement statement, final List<Column> columns, final Object[] values) throws NullPointerException, IOException, SQLException {
+		final List<InputStream> spoolSources = new ArrayList<>();
+		try {
+			for (int index = 0; index < values.length; ++index) {
+				if (values[index] instanceof Path) {
+					final Path spoolPath = (Path) values[index];
+					final InputStream spoolSource = new BufferedInputStream(Files.newInputStream(spoolPath), CHUNK_SIZE);
+					spoolSources.add(spoolSource);
+					statement.setBinaryStream(index + 1, spoolSource, Files.size(spoolPath));
+				} else {
+					setValue(statement, index + 1, columns.get(index).type(), values[index]);
+				}
+			}
+
+			statement.executeUpdate();
+		} finally {
+			for (final InputStream spoolSource : spoolSources)
+				spoolSource.close();
+		}
+	}
+
+
+	/**
+	 * Reads a column value from the given data source. Binary values exceeding the chunk size are spooled
+	 * into a temporary file, whose path is returned instead of the value.
+	 * @param dataSource the data source
+	 * @param columnType the JDBC column type
+	 * @return the value, the path of the temporary file containing a spooled binary value, or {@code null}
+	 * @throws NullPointerException if the given data source is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private Object readValue (final DataInputStream dataSource, final int columnType) throws NullPointerException, IOException {
+		if (!dataSource.readBoolean()) return null;
+
+		switch (columnType) {
+			case Types.BIT, Types.BOOLEAN:
+				return dataSource.readBoolean();
+			case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT:
+				return dataSource.readLong();
+			case Types.REAL, Types.FLOAT, Types.DOUBLE:
+				return dataSource.readDouble();
+			case Types.DATE, Types.TIME, Types.TIMESTAMP: {
+				final Timestamp value = new Timestamp(dataSource.readLong());
+				value.setNanos(dataSource.readInt());
+				return value;
+			}
+			case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB:
+				return readBinaryValue(dataSource);
+			default: {
+				final String value = new String(dataSource.readNBytes(dataSource.readInt()), UTF_8);
+				return columnType == Types.DECIMAL || columnType == Types.NUMERIC ? new BigDecimal(value) : value;
+			}
+		}
+	}
+
+
+	/**
+	 * Reads a chunked binary value from the given data source. Values up to the chunk size are returned as
+	 * byte arrays, larger ones are spooled into a temporary file whose path is returned.
+	 * @param dataSource the data source
+	 * @return the value, or the path of the temporary file containing it
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private Object readBinaryValue (final DataInputStream dataSource) throws NullPointerException, IOException {
+		final ByteArrayOutputStream value = new ByteArrayOutputStream();
+		Path spoolPath = null;
+		try {
+			OutputStream spoolSink = null;
+			try {
+				for (int length = dataSource.readInt(); length > 0; length = dataSource.readInt()) {
+					if (spoolSink == null && value.size() + length > CHUNK_SIZE) {
+						spoolPath = Files.createTempFile("snapshot-", ".bin");
+						spoolSink = new BufferedOutputStream(Files.newOutputStream(spoolPath), CHUNK_SIZE);
+						value.writeTo(spoolSink);
+					}
+
+					if (spoolSink == null) value.write(dataSource.readNBytes(length));
+					else spoolSink.write(dataSource.readNBytes(length));
+				}
+			} finally {
+				if (spoolSink != null) spoolSink.close();
+			}
+		} catch (final IOException | RuntimeException exception) {
+			if (spoolPath != null) Files.deleteIfExists(spoolPath);
+			throw exception;
+		}
+
+		return spoolPath == null ? value.toByteArray() : spoolPath;
+	}
+
+
+	/**
+	 * Sets the given non-spooled column value as the given statement parameter.
+	 * @param statement the statement
+	 * @param parameter the parameter index, starting with one
+	 * @param columnType the JDBC column type
+	 * @param value the value, or {@code null}
+	 * @return the approximate number of bytes held by the value
+	 * @throws NullPointerException if the given statement is {@code null}
+	 * @throws SQLException if there is a database related problem
+	 */
+	static private long setValue (final PreparedStatement statement, final int parameter, final int columnType, final Object value) throws NullPointerException, SQLException {
+		if (value == null) {
+			statement.setNull(parameter, columnType);
+			return 1;
+		}
+
+		switch (columnType) {
+			case Types.BIT, Types.BOOLEAN:
+				statement.setBoolean(parameter, (Boolean) value);
+				return 1;
+			case Types.TINYINT, Types.SMALLINT, Types.INTEGER, Types.BIGINT:
+				statement.setLong(parameter, (Long) value);
+				return 8;
+			case Types.REAL, Types.FLOAT, Types.DOUBLE:
+				statement.setDouble(parameter, (Double) value);
+				return 8;
+			case Types.DATE, Types.TIME, Types.TIMESTAMP: {
+				final Timestamp timestamp = (Timestamp) value;
+				if (columnType == Types.DATE) statement.setDate(parameter, new Date(timestamp.getTime()));
+				else if (columnType == Types.TIME) statement.setTime(parameter, new Time(timestamp.getTime()));
+				else statement.setTimestamp(parameter, timestamp);
+				return 12;
+			}
+			case Types.BINARY, Types.VARBINARY, Types.LONGVARBINARY, Types.BLOB:
+				statement.setBytes(parameter, (byte[]) value);
+				return ((byte[]) value).length;
+			default:
+				if (value instanceof BigDecimal) statement.setBigDecimal(parameter, (BigDecimal) value);
+				else statement.setString(parameter, (String) value);
+				return value.toString().length();
+		}
+	}
+
+
+	/**
+	 * Snapshot column header element.
+	 * @param name the column name
+	 * @param type the JDBC column type
+	 */
+	static private record Column (String name, int type) {}
+}
@@ -0,0 +1,251 @@
+package edu.sb.dinner_planner.server;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import edu.sb.tool.Copyright;
+import jakarta.json.bind.JsonbException;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.NamedQuery;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.validation.Validator;
+
+
+/**
+ * Facade warming up a REST service container before it accepts HTTP requests. The warm-up creates
+ * the entity manager factories of all persistence units referenced by the components' {@link PersistenceContext}
+ * annotations including their replica units, and creates an entity manager from each of them, thereby deploying
+ * the persistence units, logging into the databases and filling the initial connection pools. It queries a sample
+ * instance of every entity type, precompiles the named queries of all entity types and the static JPQL queries
+ * declared as class constants of the components, exercises the shared JSON binding for every entity type, and
+ * warms up the shared bean validation used by the persistence units for them. Optionally, it preloads the
+ * second level caches of the primary persistence units using {@link SecondLevelCacheControl}, which is enabled by
+ * setting the static variable {@code CACHE_PRELOAD} to the preload batch size within {@code components.properties}:
+ * <pre>edu.sb.dinner_planner.server.ContainerWarmUp.CACHE_PRELOAD=500</pre>
+ * Each phase is timed, and failing phases are reported without preventing the container from starting.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class ContainerWarmUp {
+	static private final Pattern JPQL_PATTERN = Pattern.compile("(?is)\\s*(select\\s.+\\sfrom|update|delete\\s+from)\\s.+");
+	static private String CACHE_PRELOAD = "0";
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private ContainerWarmUp () {}
+
+
+	/**
+	 * Warms up the container for the given component classes, and prints a timing report.
+	 * @param componentClasses the component classes
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public void warmUp (final Set<Class<?>> componentClasses) throws NullPointerException {
+		final long warmUpTimestamp = System.nanoTime();
+		final Map<Class<?>,Set<String>> componentUnitNames = new LinkedHashMap<>();
+		for (final Class<?> componentClass : componentClasses) {
+			final Set<String> unitNames = persistenceUnitNames(componentClass);
+			if (!unitNames.isEmpty()) componentUnitNames.put(componentClass, unitNames);
+		}
+
+		final Map<String,EntityManagerFactory> entityManagerFactories = new LinkedHashMap<>();
+		final Map<Class<?>,Object> entitySamples = new HashMap<>();
+		final Set<Class<?>> entityTypes = new LinkedHashSet<>();
+
+		phase("entity manager factories", () -> {
+			for (final Set<String> unitNames : componentUnitNames.values())
+				for (final String unitName : unitNames)
+					for (final String servingUnitName : PersistenceContextProvider.servingUnitNames(unitName))
+						entityManagerFactories.computeIfAbsent(servingUnitName, PersistenceContextProvider::entityManagerFactory);
+
+			// EclipseLink deploys persistence units and logs into their databases upon entity manager creation
+			for (final EntityManagerFactory entityManagerFactory : entityManagerFactories.values())
+				entityManagerFactory.createEntityManager().close();
+			return entityManagerFactories.size() + " units";
+		});
+
+		phase("entity queries", () -> {
+			for (final EntityManagerFactory entityManagerFactory : entityManagerFactories.values()) {
+				final EntityManager entityManager = entityManagerFactory.createEntityManager();
+				try {
+					for (final EntityType<?> entityType : entityManagerFactory.getMetamodel().getEntities()) {
+						entityTypes.add(entityType.getJavaType());
+						entityManager
+							.createQuery("select e from " + entityType.getName() + " as e", entityType.getJavaType())
+							.setMaxResults(1)
+							.getResultStream()
+							.forEach(entity -> entitySamples.putIfAbsent(entityType.getJavaType(), entity));
+					}
+				} finally {
+					entityManager.close();
+				}
+			}
+			return entityTypes.size() + " entity types, " + entitySamples.size() + " samples";
+		});
+
+		phase("named and static queries", () -> {
+			int queryCount = 0;
+			for (final Map.Entry<String,EntityManagerFactory> entry : entityManagerFactories.entrySet()) {
+				final EntityManager entityManager = entry.getValue().createEntityManager();
+				try {
+					for (final EntityType<?> entityType : entry.getValue().getMetamodel().getEntities())
+						for (final NamedQuery namedQuery : namedQueries(entityType.getJavaType())) {
+							entityManager.createNamedQuery(namedQuery.name());
+							queryCount += 1;
+						}
+
+					for (final Map.Entry<Class<?>,Set<String>> componentEntry : componentUnitNames.entrySet()) {
+						if (componentEntry.getValue().stream().noneMatch(unitName -> PersistenceContextProvider.servingUnitNames(unitName).contains(entry.getKey()))) continue;
+
+						for (final String jpql : staticQueries(componentEntry.getKey())) {
+							entityManager.createQuery(jpql);
+							queryCount += 1;
+						}
+					}
+				} finally {
+					entityManager.close();
+				}
+			}
+			return queryCount + " queries";
+		});
+
+		phase("JSON binding", () -> {
+			for (final Class<?> entityType : entityTypes) {
+				final Object entitySample = entitySamples.get(entityType);
+				try {
+					final String json = entitySample == null ? "{}" : RestJsonBindingProvider.JSON_BINDING.toJson(entitySample);
+					if (!Modifier.isAbstract(entityType.getModifiers())) RestJsonBindingProvider.JSON_BINDING.fromJson(json, entityType);
+				} catch (final JsonbException exception) {
+					// some entity types cannot be deserialized from arbitrary JSON
+				}
+			}
+			return entityTypes.size() + " entity types";
+		});
+
+		phase("bean validation", () -> {
+			final Validator validator = PersistenceContextProvider.VALIDATOR_FACTORY.getValidator();
+			for (final Class<?> entityType : entityTypes) {
+				validator.getConstraintsForClass(entityType);
+				if (entitySamples.containsKey(entityType)) validator.validate(entitySamples.get(entityType));
+			}
+			return entityTypes.size() + " entity types";
+		});
+
+		final int preloadBatchSize = Integer.parseInt(CACHE_PRELOAD.trim());
+		if (preloadBatchSize > 0) phase("second level cache preload", () -> {
+			final Set<String> unitNames = new LinkedHashSet<>();
+			componentUnitNames.values().forEach(unitNames::addAll);
+
+			int lineCount = 0;
+			for (final String unitName : unitNames)
+				for (final String line : SecondLevelCacheControl.preload(entityManagerFactories.get(unitName), preloadBatchSize)) {
+					System.out.format("- %s: %s%n", unitName, line);
+					lineCount += 1;
+				}
+			return unitNames.size() + " units, " + lineCount + " entity types";
+		});
+
+		System.out.format("Warm-up completed in %d ms.%n", (System.nanoTime() - warmUpTimestamp) / 1_000_000);
+	}
+
+
+	/**
+	 * Performs the given warm-up phase, and prints it's duration and result.
+	 * @param name the phase name
+	 * @param phase the phase, returning a short result description
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	static private void phase (final String name, final Phase phase) throws NullPointerException {
+		final long phaseTimestamp = System.nanoTime();
+		try {
+			final String result = phase.perform();
+			System.out.format("Warm-up phase \"%s\" completed in %d ms (%s).%n", name, (System.nanoTime() - phaseTimestamp) / 1_000_000, result);
+		} catch (final RuntimeException exception) {
+			System.out.format("Warm-up phase \"%s\" failed after %d ms: %s%n", name, (System.nanoTime() - phaseTimestamp) / 1_000_000, exception);
+		}
+	}
+
+
+	/**
+	 * Returns the names of the persistence units referenced by the {@link PersistenceContext}
+	 * annotated instance variables of the given class and it's superclasses.
+	 * @param componentClass the component class
+	 * @return the persistence unit names
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private Set<String> persistenceUnitNames (final Class<?> componentClass) throws NullPointerException {
+		final Set<String> unitNames = new LinkedHashSet<>();
+		for (Class<?> type = componentClass; type != null && type != Object.class; type = type.getSuperclass())
+			for (final Field field : type.getDeclaredFields()) {
+				final PersistenceContext annotation = field.getAnnotation(PersistenceContext.class);
+				if (annotation != null) unitNames.add(annotation.unitName());
+			}
+
+		return unitNames;
+	}
+
+
+	/**
+	 * Returns the named queries declared by the given entity type and it's superclasses.
+	 * @param entityType the entity type
+	 * @return the named queries
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private List<NamedQuery> namedQueries (final Class<?> entityType) throws NullPointerException {
+		final List<NamedQuery> namedQueries = new ArrayList<>();
+		for (Class<?> type = entityType; type != null && type != Object.class; type = type.getSuperclass())
+			namedQueries.addAll(List.of(type.getDeclaredAnnotationsByType(NamedQuery.class)));
+
+		return namedQueries;
+	}
+
+
+	/**
+	 * Returns the static JPQL queries of the given component class, i.e. the values of it's
+	 * static final text variables that look like JPQL select, update or delete statements.
+	 * @param componentClass the component class
+	 * @return the static queries
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static private List<String> staticQueries (final Class<?> componentClass) throws NullPointerException {
+		final List<String> queries = new ArrayList<>();
+		for (final Field field : componentClass.getDeclaredFields()) {
+			if (field.getType() != String.class || !Modifier.isStatic(field.getModifiers()) || !Modifier.isFinal(field.getModifiers()) || !field.trySetAccessible()) continue;
+
+			try {
+				final String value = (String) field.get(null);
+				if (value != null && JPQL_PATTERN.matcher(value).matches()) queries.add(value);
+			} catch (final IllegalAccessException exception) {
+				throw new AssertionError(exception);
+			}
+		}
+
+		return queries;
+	}
+
+
+
+	/**
+	 * Warm-up phase type.
+	 */
+	@FunctionalInterface
+	static private interface Phase {
+
+		/**
+		 * Performs this phase.
+		 * @return a short result description
+		 * @throws RuntimeException if this phase fails
+		 */
+		String perform () throws RuntimeException;
+	}
+}
\ No newline at end of file
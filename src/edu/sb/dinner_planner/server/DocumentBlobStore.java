@@ -0,0 +1,246 @@
+package edu.sb.dinner_planner.server;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import edu.sb.tool.Copyright;
+import edu.sb.tool.HashCodes;
+
+
+/**
+ * Content-addressed blob store for document content. Every blob is stored as a file named after the lower case
+ * hexadecimal SHA-256 hash of it's content, within a two level directory tree sharded by the first four hash
+ * digits, for example {@code 3f/a2/3fa2...}. As blob files are never modified once stored, identical content is stored
+ * only once, and reads can be served directly from the file system, for example via {@link FileChannel#transferTo}
+ * or as file entities. Blobs are stored by first streaming them into a temporary file while hashing, and then
+ * atomically moving the file into place, which keeps concurrent readers from seeing partial content.
+ * Content hashes are encoded exactly like the document hashes computed by {@link HashCodes}, which is verified
+ * once this class is initialized, see {@link #hashText(byte[])}.
+ * The default store is configured using the static variable {@code DIRECTORY}, which is empty by default,
+ * leaving document content in the database; it can be set within {@code components.properties}:
+ * <pre>edu.sb.dinner_planner.server.DocumentBlobStore.DIRECTORY=/var/lib/dinner-planner/documents</pre>
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class DocumentBlobStore {
+	static private final Pattern HASH_PATTERN = Pattern.compile("[0-9a-f]{64}");
+	static private final String TEMPORARY_DIRECTORY_NAME = "tmp";
+	static private final byte[] ENCODING_PROBE = "probe-123".getBytes(US_ASCII);	// SHA-256 hash starts with a zero byte
+	static private String DIRECTORY = "";
+	static private volatile DocumentBlobStore DEFAULT_STORE = null;
+
+	private final Path rootDirectory;
+	private final Path temporaryDirectory;
+
+
+	/**
+	 * Verifies that streamed content hashes are encoded like document hashes, including
+	 * letter case and leading zeros, as document deduplication relies on equal hash texts.
+	 */
+	static {
+		final String probeHash = HashCodes.sha2HashText(256, ENCODING_PROBE);
+		if (!hashText(newDigest().digest(ENCODING_PROBE)).equals(probeHash)) throw new ExceptionInInitializerError("hash text encoding differs from document hashes: " + probeHash);
+	}
+
+
+	/**
+	 * Returns the text representation of the given SHA-256 hash, which is the same one used for document hashes.
+	 * This allows document hashes to be computed incrementally while document content is streamed.
+	 * @param hash the SHA-256 hash
+	 * @return the lower case hexadecimal hash text
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public String hashText (final byte[] hash) throws NullPointerException {
+		return HexFormat.of().formatHex(hash);
+	}
+
+
+	/**
+	 * Returns a new SHA-256 message digest.
+	 * @return the message digest
+	 */
+	static public MessageDigest newDigest () {
+		try {
+			return MessageDigest.getInstance("SHA-256");
+		} catch (final NoSuchAlgorithmException exception) {
+			throw new AssertionError(exception);
+		}
+	}
+
+
+	/**
+	 * Returns the default blob store, as configured by the static variable {@code DIRECTORY}.
+	 * @return the default blob store, or {@code null} if document content is stored within the database
+	 * @throws UncheckedIOException if the default blob store's directories cannot be created
+	 */
+	static public DocumentBlobStore defaultStore () throws UncheckedIOException {
+		if (DEFAULT_STORE == null && !DIRECTORY.isBlank()) {
+			synchronized (DocumentBlobStore.class) {
+				try {
+					if (DEFAULT_STORE == null) DEFAULT_STORE = new DocumentBlobStore(Paths.get(DIRECTORY.trim()));
+				} catch (final IOException exception) {
+					throw new UncheckedIOException(exception);
+				}
+			}
+		}
+
+		return DEFAULT_STORE;
+	}
+
+
+	/**
+	 * Initializes a new instance, creating the given root directory if necessary.
+	 * @param rootDirectory the root directory
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public DocumentBlobStore (final Path rootDirectory) throws NullPointerException, IOException {
+		this.rootDirectory = rootDirectory.toAbsolutePath().normalize();
+		this.temporaryDirectory = Files.createDirectories(this.rootDirectory.resolve(TEMPORARY_DIRECTORY_NAME));
+	}
+
+
+	/**
+	 * Returns the root directory.
+	 * @return the root directory
+	 */
+	public Path rootDirectory () {
+		return this.rootDirectory;
+	}
+
+
+	/**
+	 * Returns the file path of the blob with the given content hash, regardless of whether or not it exists.
+	 * @param hash the lower case hexadecimal SHA-256 content hash
+	 * @return the blob file path
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 */
+	public Path path (final String hash) throws NullPointerException, IllegalArgumentException {
+		if (!HASH_PATTERN.matcher(hash).matches()) throw new IllegalArgumentException("malformed hash!");
+		return this.rootDirectory.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+	}
+
+
+	/**
+	 * Returns whether or not this store contains a blob with the given content hash.
+	 * @param hash the lower case hexadecimal SHA-256 content hash
+	 * @return whether or not the blob exists
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 */
+	public boolean contains (final String hash) throws NullPointerException, IllegalArgumentException {
+		return Files.isRegularFile(this.path(hash));
+	}
+
+
+	/**
+	 * Opens a read-only file channel for the blob with the given content hash.
+	 * @param hash the lower case hexadecimal SHA-256 content hash
+	 * @return the file channel, which must be closed by the caller
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws NoSuchFileException if there is no such blob
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public FileChannel open (final String hash) throws NullPointerException, IllegalArgumentException, NoSuchFileException, IOException {
+		return FileChannel.open(this.path(hash), StandardOpenOption.READ);
+	}
+
+
+	/**
+	 * Stores the content of the given byte source as a blob, and closes the byte source.
+	 * The content is never held in memory as a whole.
+	 * @param byteSource the byte source
+	 * @return the lower case hexadecimal SHA-256 content hash
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public String store (final InputStream byteSource) throws NullPointerException, IOException {
+		final Path temporaryPath = Files.createTempFile(this.temporaryDirectory, "blob-", ".tmp");
+		try {
+			final MessageDigest digest = newDigest();
+			try (InputStream source = byteSource; OutputStream sink = new DigestOutputStream(Files.newOutputStream(temporaryPath), digest)) {
+				source.transferTo(sink);
+			}
+
+			final String hash = hashText(digest.digest());
+			final Path path = this.path(hash);
+			if (!Files.exists(path)) {
+				Files.createDirectories(path.getParent());
+				try {
+					Files.move(temporaryPath, path, StandardCopyOption.ATOMIC_MOVE);
+				} catch (final FileAlreadyExistsException exception) {
+					// stored concurrently
+				}
+			}
+
+			return hash;
+		} finally {
+			Files.deleteIfExists(temporaryPath);
+		}
+	}
+
+
+	/**
+	 * Returns whether or not the blob with the given content hash exists and is intact,
+	 * i.e. whether or not it's content still matches it's hash.
+	 * @param hash the lower case hexadecimal SHA-256 content hash
+	 * @return whether or not the blob is intact
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean verify (final String hash) throws NullPointerException, IllegalArgumentException, IOException {
+		final Path path = this.path(hash);
+		if (!Files.isRegularFile(path)) return false;
+
+		final MessageDigest digest = newDigest();
+		try (OutputStream sink = new DigestOutputStream(OutputStream.nullOutputStream(), digest)) {
+			Files.copy(path, sink);
+		}
+
+		return hashText(digest.digest()).equals(hash);
+	}
+
+
+	/**
+	 * Deletes the blob with the given content hash, if it exists.
+	 * @param hash the lower case hexadecimal SHA-256 content hash
+	 * @return whether or not the blob existed
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given hash is malformed
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public boolean delete (final String hash) throws NullPointerException, IllegalArgumentException, IOException {
+		return Files.deleteIfExists(this.path(hash));
+	}
+
+
+	/**
+	 * Returns the content hashes of all blobs within this store. The resulting stream must be closed by the caller.
+	 * @return the blob content hashes
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public Stream<String> hashes () throws IOException {
+		return Files.walk(this.rootDirectory, 3)
+			.filter(path -> path.getNameCount() == this.rootDirectory.getNameCount() + 3)
+			.map(path -> path.getFileName().toString())
+			.filter(name -> HASH_PATTERN.matcher(name).matches());
+	}
+}
\ No newline at end of file
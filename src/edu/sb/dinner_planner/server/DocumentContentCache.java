@@ -0,0 +1,292 @@
+package edu.sb.dinner_planner.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Cleaner;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import edu.sb.tool.Copyright;
+
+
+/**
+ * Size-bounded, least-recently-used cache for document content, keyed by the content's SHA-256 hash. The
+ * content is held off-heap within direct byte buffers, which keeps frequently requested documents like avatars
+ * and illustrations from being materialized on the Java heap for every request. As the keys are content hashes,
+ * cached content never becomes stale, and entries only need to be evicted to make room for others. Contents
+ * larger than an eighth of the capacity are not cached. Callers should use {@link #get(String, ContentLoader)},
+ * which combines lookup and loading, and therefore keeps the published hit ratio meaningful; the cache is used this
+ * way by {@link DocumentContentService}.
+ * <p>Admission only depends on the entry limit and on the resident bytes, never on garbage collection timing. Direct
+ * byte buffers cannot be freed explicitly on this platform, so the off-heap memory of evicted contents is only
+ * reclaimed once the garbage collector finds them, and all views handed out for them, unreachable. The allocated
+ * bytes are therefore tracked separately from the resident bytes and published via JMX for monitoring. Their growth
+ * is bounded by the VM option {@code -XX:MaxDirectMemorySize}: once an allocation would exceed it, the VM collects
+ * garbage to reclaim the off-heap memory of unreachable buffers before retrying, and only if that fails, the
+ * content is served without being cached. Note that this collection is an explicit one, and therefore ineffective
+ * with {@code -XX:+DisableExplicitGC}.</p>
+ * <p>The default cache is configured using the static variable {@code CAPACITY}, which defines the capacity in
+ * bytes and can be set within {@code components.properties}; it is published via JMX, and a capacity of zero
+ * disables it:</p>
+ * <pre>edu.sb.dinner_planner.server.DocumentContentCache.CAPACITY=268435456</pre>
+ * Note that the off-heap memory available is limited by the VM option {@code -XX:MaxDirectMemorySize}.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class DocumentContentCache implements DocumentContentCacheMXBean {
+	static private final String OBJECT_NAME = "edu.sb.dinner_planner.server:type=DocumentContentCache";
+	static private final Cleaner CLEANER = Cleaner.create();
+	static private String CAPACITY = "67108864";
+	static private volatile DocumentContentCache DEFAULT_CACHE = null;
+
+	private final long capacity;
+	private final long entryLimit;
+	private final LinkedHashMap<String,ByteBuffer> entries = new LinkedHashMap<>(256, 0.75f, true);
+	private final LongAdder hitCount = new LongAdder();
+	private final LongAdder missCount = new LongAdder();
+	private final LongAdder allocatedBytes = new LongAdder();
+	private long residentBytes = 0;
+
+
+	/**
+	 * Returns the default cache, as configured by the static variable {@code CAPACITY}.
+	 * @return the default cache, or {@code null} if document content caching is disabled
+	 * @throws IllegalStateException if the default cache cannot be published via JMX
+	 */
+	static public DocumentContentCache defaultCache () throws IllegalStateException {
+		if (DEFAULT_CACHE == null && Long.parseLong(CAPACITY.trim()) > 0) {
+			synchronized (DocumentContentCache.class) {
+				if (DEFAULT_CACHE == null) {
+					final DocumentContentCache cache = new DocumentContentCache(Long.parseLong(CAPACITY.trim()));
+
+					try {
+						final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+						final ObjectName name = new ObjectName(OBJECT_NAME);
+						try {
+							server.registerMBean(cache, name);
+						} catch (final InstanceAlreadyExistsException exception) {
+							server.unregisterMBean(name);
+							server.registerMBean(cache, name);
+						}
+					} catch (final JMException exception) {
+						throw new IllegalStateException(exception);
+					}
+
+					DEFAULT_CACHE = cache;
+				}
+			}
+		}
+
+		return DEFAULT_CACHE;
+	}
+
+
+	/**
+	 * Writes the remaining content of the given buffer to the given byte sink, without consuming the buffer.
+	 * @param content the content buffer
+	 * @param byteSink the byte sink
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public void transfer (final ByteBuffer content, final OutputStream byteSink) throws NullPointerException, IOException {
+		final ByteBuffer buffer = content.duplicate();
+		final WritableByteChannel channel = Channels.newChannel(byteSink);
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param capacity the maximum number of content bytes held off-heap
+	 * @throws IllegalArgumentException if the given capacity is negative or zero
+	 */
+	public DocumentContentCache (final long capacity) throws IllegalArgumentException {
+		if (capacity <= 0) throw new IllegalArgumentException();
+
+		this.capacity = capacity;
+		this.entryLimit = Math.max(1, capacity / 8);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getCapacity () {
+		return this.capacity;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized long getResidentBytes () {
+		return this.residentBytes;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getAllocatedBytes () {
+		return this.allocatedBytes.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized int getEntryCount () {
+		return this.entries.size();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getHitCount () {
+		return this.hitCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getMissCount () {
+		return this.missCount.sum();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public double getHitRatio () {
+		final long hitCount = this.hitCount.sum(), lookupCount = hitCount + this.missCount.sum();
+		return lookupCount == 0 ? 0.0 : (double) hitCount / lookupCount;
+	}
+
+
+	/**
+	 * Returns the cached content for the given hash, marking it as most recently used.
+	 * @param hash the content hash
+	 * @return a read-only view of the cached content, or {@code null} if the content is not cached
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public ByteBuffer get (final String hash) throws NullPointerException {
+		final ByteBuffer content;
+		synchronized (this) {
+			content = this.entries.get(hash);
+		}
+
+		(content == null ? this.missCount : this.hitCount).increment();
+		return content == null ? null : content.asReadOnlyBuffer();
+	}
+
+
+	/**
+	 * Returns the cached content for the given hash, marking it as most recently used. If the content is not
+	 * cached, it is loaded using the given loader and cached if possible.
+	 * @param hash the content hash
+	 * @param loader the content loader, called only if the content is not cached
+	 * @return a read-only view of the cached or loaded content
+	 * @throws NullPointerException if any of the given arguments is {@code null}, or if the loader returns {@code null}
+	 * @throws IOException if there is an I/O related problem loading the content
+	 */
+	public ByteBuffer get (final String hash, final ContentLoader loader) throws NullPointerException, IOException {
+		if (loader == null) throw new NullPointerException();
+
+		final ByteBuffer cachedContent = this.get(hash);
+		if (cachedContent != null) return cachedContent;
+
+		final ByteBuffer content = loader.load(hash);
+		final ByteBuffer entry = this.put(hash, content);
+		return entry == null ? content.asReadOnlyBuffer() : entry;
+	}
+
+
+	/**
+	 * Copies the remaining bytes of the given content into off-heap memory and caches them for the given hash,
+	 * evicting the least recently used contents as required. The given buffer is not consumed, and contents
+	 * exceeding an eighth of this cache's capacity are not cached, neither are contents for which no off-heap
+	 * memory can be allocated within the limit of {@code -XX:MaxDirectMemorySize}.
+	 * @param hash the content hash
+	 * @param content the content
+	 * @return a read-only view of the cached content, or {@code null} if the content cannot be cached
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	public ByteBuffer put (final String hash, final ByteBuffer content) throws NullPointerException {
+		if (hash == null) throw new NullPointerException();
+		final int size = content.remaining();
+		if (size > this.entryLimit) return null;
+
+		final ByteBuffer buffer;
+		try {
+			buffer = ByteBuffer.allocateDirect(size);
+		} catch (final OutOfMemoryError error) {
+			// thrown if the direct memory limit is still exceeded after collecting unreachable buffers
+			return null;
+		}
+
+		// track the off-heap memory until the buffer is collected, which requires all it's views to be unreachable
+		final LongAdder allocatedBytes = this.allocatedBytes;
+		allocatedBytes.add(size);
+		CLEANER.register(buffer, () -> allocatedBytes.add(-size));
+
+		final ByteBuffer entry = buffer.put(content.duplicate()).flip().asReadOnlyBuffer();
+		synchronized (this) {
+			final ByteBuffer previousEntry = this.entries.put(hash, entry);
+			if (previousEntry != null) this.residentBytes -= previousEntry.capacity();
+			this.residentBytes += entry.capacity();
+
+			for (final Iterator<Map.Entry<String,ByteBuffer>> iterator = this.entries.entrySet().iterator(); this.residentBytes > this.capacity && iterator.hasNext(); ) {
+				final Map.Entry<String,ByteBuffer> eldest = iterator.next();
+				if (eldest.getValue() == entry) continue;
+
+				this.residentBytes -= eldest.getValue().capacity();
+				iterator.remove();
+			}
+		}
+
+		return entry.duplicate();
+	}
+
+
+	/**
+	 * Removes the cached content for the given hash, if any.
+	 * @param hash the content hash
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	public void remove (final String hash) throws NullPointerException {
+		if (hash == null) throw new NullPointerException();
+
+		synchronized (this) {
+			final ByteBuffer entry = this.entries.remove(hash);
+			if (entry != null) this.residentBytes -= entry.capacity();
+		}
+	}
+
+
+
+	/**
+	 * Functional interface for loading content that is not cached.
+	 */
+	@FunctionalInterface
+	static public interface ContentLoader {
+
+		/**
+		 * Loads the content with the given hash.
+		 * @param hash the content hash
+		 * @return the content
+		 * @throws IOException if there is an I/O related problem
+		 */
+		ByteBuffer load (String hash) throws IOException;
+	}
+}
@@ -0,0 +1,60 @@
+package edu.sb.dinner_planner.server;
+
+import edu.sb.tool.Copyright;
+
+
+/**
+ * JMX interface publishing the state of a {@link DocumentContentCache}.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public interface DocumentContentCacheMXBean {
+
+	/**
+	 * Returns the capacity.
+	 * @return the maximum number of content bytes held off-heap
+	 */
+	long getCapacity ();
+
+
+	/**
+	 * Returns the resident byte count.
+	 * @return the number of content bytes currently held off-heap
+	 */
+	long getResidentBytes ();
+
+
+	/**
+	 * Returns the allocated byte count, which includes evicted contents whose off-heap memory hasn't been
+	 * reclaimed by the garbage collector yet.
+	 * @return the number of content bytes currently allocated off-heap
+	 */
+	long getAllocatedBytes ();
+
+
+	/**
+	 * Returns the entry count.
+	 * @return the number of contents currently cached
+	 */
+	int getEntryCount ();
+
+
+	/**
+	 * Returns the hit count.
+	 * @return the number of cache hits since startup
+	 */
+	long getHitCount ();
+
+
+	/**
+	 * Returns the miss count.
+	 * @return the number of cache misses since startup
+	 */
+	long getMissCount ();
+
+
+	/**
+	 * Returns the hit ratio.
+	 * @return the ratio of cache hits to cache lookups since startup, or zero if there were none
+	 */
+	double getHitRatio ();
+}
\ No newline at end of file
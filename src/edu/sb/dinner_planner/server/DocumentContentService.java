@@ -0,0 +1,109 @@
+package edu.sb.dinner_planner.server;
+
+import static jakarta.ws.rs.core.Response.Status.NOT_FOUND;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.NoSuchFileException;
+import java.util.List;
+import edu.sb.tool.Copyright;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.StreamingOutput;
+
+
+/**
+ * JAX-RS based REST service implementation serving document content by it's content hash. Requests are answered
+ * using a hash-only lookup of the document's content type, which neither loads the document entity nor it's content;
+ * the content itself is taken from the {@link DocumentContentCache}, and only loaded if it's not cached, preferably
+ * by memory-mapping it's blob within the default {@link DocumentBlobStore}, which avoids materializing it on the Java
+ * heap, and otherwise from the database. As the hash identifies the content, it doubles as the entity tag, and
+ * responses are marked as immutable, which allows clients and proxies to cache them indefinitely, and to revalidate
+ * them without any content being loaded.
+ */
+@Path("document-contents")
+@Copyright(year=2025, holders="Sascha Baumeister")
+public class DocumentContentService {
+	static private final String QUERY_DOCUMENT_TYPE = "select d.type from Document as d where d.hash = :hash";
+	static private final String QUERY_DOCUMENT_CONTENT = "select d.content from Document as d where d.hash = :hash";
+	static private final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+
+	@PersistenceContext(unitName="local_database")
+	private EntityManager entityManager;
+
+
+	/**
+	 * HTTP Signature: GET document-contents/{hash} Accept: *&#47;*
+	 * @param hash the lower case hexadecimal SHA-256 content hash
+	 * @param request the HTTP request
+	 * @return the document content, or an empty response if the client's copy is current
+	 * @throws ClientErrorException (HTTP 404) if there is no document with the given content hash
+	 * @throws IOException if there is an I/O related problem loading the content
+	 */
+	@GET
+	@Path("{hash: [0-9a-f]{64}}")
+	public Response findDocumentContent (@PathParam("hash") final String hash, @Context final Request request) throws ClientErrorException, IOException {
+		final List<String> types = this.entityManager
+			.createQuery(QUERY_DOCUMENT_TYPE, String.class)
+			.setParameter("hash", hash)
+			.setMaxResults(1)
+			.getResultList();
+		if (types.isEmpty()) throw new ClientErrorException(NOT_FOUND);
+
+		final EntityTag entityTag = new EntityTag(hash);
+		final Response.ResponseBuilder notModifiedBuilder = request.evaluatePreconditions(entityTag);
+		if (notModifiedBuilder != null) return notModifiedBuilder.header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL).build();
+
+		final DocumentContentCache contentCache = DocumentContentCache.defaultCache();
+		final ByteBuffer content = contentCache == null ? this.loadContent(hash) : contentCache.get(hash, this::loadContent);
+		final StreamingOutput streamingOutput = byteSink -> DocumentContentCache.transfer(content, byteSink);
+
+		return Response
+			.ok(streamingOutput, types.get(0))
+			.tag(entityTag)
+			.header(HttpHeaders.CACHE_CONTROL, IMMUTABLE_CACHE_CONTROL)
+			.header(HttpHeaders.CONTENT_LENGTH, content.remaining())
+			.build();
+	}
+
+
+	/**
+	 * Loads the content with the given hash by memory-mapping it's blob if the default blob store contains it,
+	 * and otherwise from the database, using a projection instead of the document entity.
+	 * @param hash the content hash
+	 * @return the content
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws ClientErrorException (HTTP 404) if the document has been removed concurrently
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private ByteBuffer loadContent (final String hash) throws NullPointerException, ClientErrorException, IOException {
+		final DocumentBlobStore blobStore = DocumentBlobStore.defaultStore();
+		if (blobStore != null) {
+			try (FileChannel fileChannel = blobStore.open(hash)) {
+				// mappings stay valid after their channel is closed
+				return fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+			} catch (final NoSuchFileException exception) {
+				// content not migrated yet
+			}
+		}
+
+		final List<byte[]> contents = this.entityManager
+			.createQuery(QUERY_DOCUMENT_CONTENT, byte[].class)
+			.setParameter("hash", hash)
+			.setMaxResults(1)
+			.getResultList();
+		if (contents.isEmpty()) throw new ClientErrorException(NOT_FOUND);
+
+		return ByteBuffer.wrap(contents.get(0));
+	}
+}
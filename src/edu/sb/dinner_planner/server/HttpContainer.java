@@ -16,6 +16,9 @@ import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.net.ssl.SSLContext;
 import org.glassfish.jersey.jdkhttp.JdkHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
@@ -33,6 +36,10 @@ import edu.sb.tool.ZipPaths;
  * the package of the service classes matches this class's package.</p>
  * <p>Note that for LAZY fetching of entities within <i>EclipseLink</i> (dynamic weaving), add this to the JVM start parameters:
  * -javaagent:[path]eclipselink.jar</p>
+ * <p>Fingerprinted resource aliases with far-future caching are enabled for both resource contexts by adding
+ * {@code edu.sb.dinner_planner.server.HttpContainer.RESOURCE_FINGERPRINTING=true} to the component configuration.</p>
+ * <p>Before the container starts accepting HTTP requests, it is warmed up using {@link ContainerWarmUp}; this can
+ * be disabled by adding {@code edu.sb.dinner_planner.server.HttpContainer.WARM_UP=false} to the component configuration.</p>
  */
 @Copyright(year=2013, holders="Sascha Baumeister")
 public final class HttpContainer {
@@ -40,6 +47,9 @@ public final class HttpContainer {
 	static private final int DEFAULT_PORT = 8010;
 	static private final String DEFAULT_RESOURCE_DIRECTORY = "WEB-INF";
 	static private final String DEFAULT_KEY_STORE_PASSWORD = "changeit";
+	static private final String SCOPE_SINGLETON = "@singleton", SCOPE_REQUEST = "@request";
+	static private String RESOURCE_FINGERPRINTING = "false";
+	static private String WARM_UP = "true";
 
 
 	/**
@@ -65,9 +75,11 @@ public final class HttpContainer {
 	 * consisting of either a hostname:port combination or solely the port (default is 8045), an optional
 	 * external resource directory path (default is the VM temporary directory), an optional key-store
 	 * file path for HTTPS (default is {@code null} for HTTP), a key store password (default is"changeit"),
-	 * and an optional key store device password (default is {@code null}).
+	 * an optional key store device password (default is {@code null}), and an optional execution mode for
+	 * HTTP exchanges, being either "virtual" or "platform[:pool-size]" (default is "virtual").
 	 * @param args the runtime arguments
-	 * @throws IllegalArgumentException if the given service port is not a valid port number, or if a given component class is not valid
+	 * @throws IllegalArgumentException if the given service port is not a valid port number, if a given component class is not valid,
+	 * 			or if the given execution mode is illegal
 	 * @throws IllegalStateException if the local host name contains illegal characters
 	 * @throws NotDirectoryException if the given external resource directory path is not a directory
 	 * @throws NoSuchFileException if the given key store file path is neither {@code null} nor representing a regular file
@@ -86,6 +98,7 @@ public final class HttpContainer {
 		final Path keyStorePath = args.length > 2 && !args[2].isBlank() ? Paths.get(args[2].trim()).toAbsolutePath() : null;
 		final String keyStorePassword = args.length > 3 && !args[3].isBlank() ? args[3].trim() : DEFAULT_KEY_STORE_PASSWORD;
 		final String keyStoreDevicePassword = args.length > 4 && !args[4].isBlank() ? args[4].trim() : null;
+		final String executionMode = args.length > 5 && !args[5].isBlank() ? args[5].trim() : null;
 
 		// if (!TcpServers.localHostnames().anyMatch(hostname -> hostname.startsWith(serviceHostname))) throw new IllegalArgumentException("configured service host name is illegal: " + serviceHostname);
 		if (servicePort < 1 || servicePort > 65535) throw new IllegalArgumentException("configured service port is illegal: " + servicePort);
@@ -99,17 +112,25 @@ public final class HttpContainer {
 		final SSLContext tlsContext = keyStorePath == null ? null : TcpServers.newTLSContext(keyStorePath, keyStorePassword, keyStoreDevicePassword);
 		if (tlsContext != null) tlsContext.createSSLEngine(serviceURI.getHost(), serviceURI.getPort());
 
-		// Create and start HTTP/HTTPS container
-		final HttpServer httpContainer = JdkHttpServerFactory.createHttpServer(serviceURI, configuration, tlsContext);
+		// Create and start HTTP/HTTPS container; note that the executor must be set before the container is started
+		final ExecutorService httpExecutor = TcpServers.newHttpExecutor(executionMode);
+		final HttpServer httpContainer = JdkHttpServerFactory.createHttpServer(serviceURI, configuration, tlsContext, false);
+		httpContainer.setExecutor(httpExecutor);
 		final HttpResourceHandler internalFileHandler = internalResourceDirectory == null ? null : new HttpResourceHandler("/internal", internalResourceDirectory);
 		final HttpResourceHandler externalFileHandler = externalResourceDirectory == null ? null : new HttpResourceHandler("/external", externalResourceDirectory);
+		for (final HttpResourceHandler fileHandler : new HttpResourceHandler[] { internalFileHandler, externalFileHandler })
+			if (fileHandler != null) fileHandler.setFingerprinting(Boolean.parseBoolean(RESOURCE_FINGERPRINTING));
+		if (internalFileHandler != null) internalFileHandler.packResourcesTemporarily("internal-resources-");
 		if (internalFileHandler != null)
 			httpContainer.createContext(internalFileHandler.getContextPath(), internalFileHandler);
 		if (externalFileHandler != null)
 			httpContainer.createContext(externalFileHandler.getContextPath(), externalFileHandler);
+		if (Boolean.parseBoolean(WARM_UP)) ContainerWarmUp.warmUp(Stream.concat(configuration.getClasses().stream(), configuration.getInstances().stream().map(Object::getClass)).collect(Collectors.toSet()));
+		httpContainer.start();
 
 		try {
 			System.out.format("%nWeb container running on origin \"%s://%s:%s\".%n", serviceURI.getScheme(), serviceURI.getHost(), serviceURI.getPort());
+			System.out.format("HTTP exchanges are processed in \"%s\" execution mode.%n", executionMode == null ? "virtual" : executionMode);
 			System.out.format("Context path \"%s\" is configured for REST service access.%n", serviceURI.getPath());
 			if (internalFileHandler != null)
 				System.out.format("Context path \"%s\" is configured for class loader access within \"%s\".%n", internalFileHandler.getContextPath(), internalFileHandler.getResourceDirectory());
@@ -121,12 +142,22 @@ public final class HttpContainer {
 			while (!"quit".equals(charSource.readLine()));
 		} finally {
 			httpContainer.stop(0);
+			httpExecutor.shutdown();
 		}
 	}
 
 
 	/**
-	 * Creates and returns a new resource configuration.
+	 * Creates and returns a new resource configuration. Each component configuration entry consists of a
+	 * fully qualified class name, and a value consisting of an optional scope followed by an optional
+	 * constructor argument, as in {@code "@singleton"} or {@code "@singleton 20,4,500"}. Components without
+	 * scope are registered by class, unless a constructor argument is given; their scope is therefore
+	 * determined by their annotations, with REST services defaulting to one instance per request. The scope
+	 * {@code "@request"} explicitly registers a component by class, while the scope {@code "@singleton"}
+	 * registers a single instance created using the component's default constructor. Note that singleton
+	 * components still receive {@code JPA} entity managers bound to the current HTTP request, see
+	 * {@link PersistenceContextProvider}. Alternatively, an entry may consist of a fully qualified class
+	 * variable name and it's value, which sets the value of a static, non-final text variable.
 	 * @return the resource configuration created
 	 * @throws ClassNotFoundException if a configured class cannot be found
 	 * @throws IOException if there is an I/O related problem
@@ -145,12 +176,17 @@ public final class HttpContainer {
 					final Class<?> componentClass = Class.forName(key, true, Thread.currentThread().getContextClassLoader());
 					System.out.format("Configuring component %s%n", componentClass.getName());
 
-					if (value.isEmpty()) {
+					final String scope = value.startsWith("@") ? value.split("\\s+", 2)[0] : null;
+					final String argument = scope == null ? value : value.substring(scope.length()).trim();
+					if (scope != null && !scope.equals(SCOPE_SINGLETON) && !scope.equals(SCOPE_REQUEST)) throw new IllegalArgumentException("illegal component scope: " + value);
+					if (SCOPE_REQUEST.equals(scope) && !argument.isEmpty()) throw new IllegalArgumentException("request scoped components cannot have constructor arguments: " + key);
+
+					if (argument.isEmpty() && !SCOPE_SINGLETON.equals(scope)) {
 						configuration.register(componentClass);
 					} else {
 						try {
-							final Constructor<?> constructor = componentClass.getDeclaredConstructor(String.class);
-							final Object componentInstance = constructor.newInstance(value);
+							final Constructor<?> constructor = argument.isEmpty() ? componentClass.getDeclaredConstructor() : componentClass.getDeclaredConstructor(String.class);
+							final Object componentInstance = argument.isEmpty() ? constructor.newInstance() : constructor.newInstance(argument);
 							configuration.register(componentInstance);
 						} catch (final Exception e) {
 							throw new IllegalArgumentException(e);
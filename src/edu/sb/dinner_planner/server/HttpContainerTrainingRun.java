@@ -0,0 +1,138 @@
+package edu.sb.dinner_planner.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.atomic.AtomicReference;
+import edu.sb.tool.Copyright;
+
+
+/**
+ * <p>Training run for application class data sharing (<i>AppCDS</i>) archives of the {@link HttpContainer}. The training
+ * run starts the container, including it's component registration and warm-up, sends a few representative HTTP requests,
+ * reports the time from VM start to the first successful response, and terminates the container and VM. When started with
+ * {@code -XX:ArchiveClassesAtExit}, the VM dumps a dynamic archive of all classes loaded during the run upon termination:</p>
+ * <pre>java -XX:ArchiveClassesAtExit=dinner-planner.jsa [class path] edu.sb.dinner_planner.server.HttpContainerTrainingRun /services/recipes,/internal/index.html "" 8010</pre>
+ * <p>The container is then launched using the archive, which must be created by the same JDK with the same class path:</p>
+ * <pre>java -XX:SharedArchiveFile=dinner-planner.jsa [class path] edu.sb.dinner_planner.server.HttpContainer 8010</pre>
+ * <p>Running the training run with {@code -XX:SharedArchiveFile} instead, and once without any archive option,
+ * compares the time to the first successful request with and without the archive. The training run terminates
+ * with exit code 0 if at least one request has been successful and the container has terminated normally, and
+ * with exit code 1 otherwise, which allows training pipelines to discard archives of broken runs. Note that the
+ * training run requires the container to use HTTP instead of HTTPS.</p>
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class HttpContainerTrainingRun {
+	static private final Duration STARTUP_TIMEOUT = Duration.ofMinutes(2);
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private HttpContainerTrainingRun () {}
+
+
+	/**
+	 * Application entry point. The given arguments are expected to be a comma separated list of request
+	 * paths, optional credentials for basic authentication in the form "email:password" (default is none),
+	 * and the {@link HttpContainer} arguments.
+	 * @param args the runtime arguments
+	 * @throws IllegalArgumentException if the given arguments are illegal
+	 * @throws IOException if there is an I/O related problem
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	static public void main (final String[] args) throws IllegalArgumentException, IOException, InterruptedException {
+		final String[] requestPaths = args.length > 0 && !args[0].isBlank() ? args[0].trim().split("\\s*,\\s*") : new String[0];
+		final String credentials = args.length > 1 && !args[1].isBlank() ? args[1].trim() : null;
+		final String[] containerArgs = args.length > 2 ? Arrays.copyOfRange(args, 2, args.length) : new String[0];
+		final String socketAddress = containerArgs.length > 0 && !containerArgs[0].isBlank() ? containerArgs[0].trim() : "8010";
+		final String serviceHostname = socketAddress.contains(":") ? socketAddress.substring(0, socketAddress.indexOf(':')) : TcpServers.localAddress().getCanonicalHostName();
+		final int servicePort = Integer.parseInt(socketAddress.contains(":") ? socketAddress.substring(socketAddress.indexOf(':') + 1) : socketAddress);
+		final URI origin = URI.create("http://" + serviceHostname + ":" + servicePort);
+
+		System.out.format("Class data sharing options: %s%n", ManagementFactory.getRuntimeMXBean().getInputArguments().stream().filter(argument -> argument.contains("SharedArchiveFile") || argument.contains("ArchiveClassesAtExit")).toList());
+
+		final PipedOutputStream commandSink = new PipedOutputStream();
+		final InputStream commandSource = new PipedInputStream(commandSink);
+		System.setIn(commandSource);
+		final AtomicReference<Throwable> containerFailure = new AtomicReference<>();
+		final Thread containerThread = Thread.ofPlatform().name("http-container").start(() -> {
+			try {
+				HttpContainer.main(containerArgs);
+			} catch (final Throwable exception) {
+				containerFailure.set(exception);
+				exception.printStackTrace(System.err);
+			}
+		});
+
+		boolean successful = false;
+		try {
+			awaitStartup(serviceHostname, servicePort, containerThread);
+
+			final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(10)).build();
+			for (final String requestPath : requestPaths) {
+				final HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(origin.resolve(requestPath)).header("Accept", "application/json, */*").GET();
+				if (credentials != null) requestBuilder.header("Authorization", "Basic " + Base64.getEncoder().encodeToString(credentials.getBytes(UTF_8)));
+
+				final HttpResponse<byte[]> response = client.send(requestBuilder.build(), HttpResponse.BodyHandlers.ofByteArray());
+				System.out.format("Training request \"%s\" answered with HTTP %d (%d bytes).%n", requestPath, response.statusCode(), response.body().length);
+				if (!successful && response.statusCode() < 400) {
+					successful = true;
+					System.out.format("First successful request completed after %d ms of VM uptime.%n", ManagementFactory.getRuntimeMXBean().getUptime());
+				}
+			}
+			if (!successful) System.out.println("No training request has been successful.");
+		} catch (final IllegalStateException | IOException exception) {
+			System.out.format("Training run failed: %s%n", exception);
+		} finally {
+			try {
+				commandSink.write("quit\n".getBytes(UTF_8));
+				commandSink.flush();
+			} catch (final IOException exception) {
+				// container has already terminated
+			}
+			containerThread.join(STARTUP_TIMEOUT.toMillis());
+		}
+
+		if (containerThread.isAlive()) System.out.println("Container failed to terminate in time.");
+		if (containerFailure.get() != null) System.out.format("Container terminated with %s%n", containerFailure.get());
+		System.exit(successful && containerFailure.get() == null && !containerThread.isAlive() ? 0 : 1);
+	}
+
+
+	/**
+	 * Waits until the container accepts connections on the given socket address.
+	 * @param hostname the service host name
+	 * @param port the service port
+	 * @param containerThread the container thread
+	 * @throws IllegalStateException if the container terminates or fails to start in time
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	static private void awaitStartup (final String hostname, final int port, final Thread containerThread) throws IllegalStateException, InterruptedException {
+		final long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+		while (System.nanoTime() - deadline < 0) {
+			if (!containerThread.isAlive()) throw new IllegalStateException("container terminated during startup!");
+
+			try (Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress(hostname, port), 1000);
+				return;
+			} catch (final IOException exception) {
+				Thread.sleep(100);
+			}
+		}
+
+		throw new IllegalStateException("container failed to start in time!");
+	}
+}
\ No newline at end of file
@@ -1,20 +1,54 @@
 package edu.sb.dinner_planner.server;
 
+import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.AccessDeniedException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import edu.sb.tool.Copyright;
@@ -28,8 +62,22 @@ import edu.sb.tool.ZipPaths;
 @Copyright(year=2010, holders="Sascha Baumeister")
 public class HttpResourceHandler implements HttpHandler {
 	static public enum Method { GET, HEAD, POST, PUT, PATCH, DELETE, CONNECT, TRACE, OPTIONS }
-	static private final short OK = 200, NO_CONTENT = 204, NOT_FOUND = 404, METHOD_NOT_ALLOWED = 405;
+	static private final short OK = 200, NO_CONTENT = 204, PARTIAL_CONTENT = 206, NOT_MODIFIED = 304, NOT_FOUND = 404, METHOD_NOT_ALLOWED = 405, RANGE_NOT_SATISFIABLE = 416;
+	static private final int MAX_RANGE_COUNT = 16;
+	static private final int COMPRESSION_THRESHOLD = 256;
+	static private final String ENCODING_BROTLI = "br", ENCODING_GZIP = "gzip";
+	static private final String MANIFEST_PATH = "fingerprint-manifest.json";
+	static private final String IMMUTABLE_CACHE_CONTROL = "public, max-age=31536000, immutable";
+	static private final Pattern CONTENT_ETAG_PATTERN = Pattern.compile("\"[0-9a-f]{32}\"");
+	static private final Pattern FINGERPRINT_PATTERN = Pattern.compile("(.*)\\.([0-9a-f]{8})((?:\\.[^./]+)?)");
 	static private final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+	static private final Set<String> COMPRESSIBLE_SYNTAXES = Set.of("xml", "json", "javascript");
+	static private final CachedResource ABSENT_RESOURCE = new CachedResource(new byte[0], DEFAULT_CONTENT_TYPE, 0L, null);
+	static private final long CACHE_CAPACITY = 64L * 1024 * 1024;
+	static private final long CACHE_ENTRY_LIMIT = 1L * 1024 * 1024;
+	static private final long ENCODED_CACHE_CAPACITY = 16L * 1024 * 1024;
+	static private final long MAP_WINDOW_SIZE = 64L * 1024 * 1024;
+	static private final int TRANSFER_CHUNK_SIZE = 256 * 1024;
 	static private Map<String,String> CONTENT_TYPES = Stream.of(new String[][] {
 		{ "bin", DEFAULT_CONTENT_TYPE },
 		{ "xhtml", "application/xhtml+xml" },
@@ -46,8 +94,15 @@ public class HttpResourceHandler implements HttpHandler {
 
 	private final String contextPath;
 	private final Path resourceDirectory;
-	private final Set<Method> methods = new CopyOnWriteArraySet<>(Arrays.asList(Method.GET, Method.OPTIONS));
+	private final Set<Method> methods = new CopyOnWriteArraySet<>(Arrays.asList(Method.GET, Method.HEAD, Method.OPTIONS));
 	private final Map<String,String> contentTypes = new ConcurrentHashMap<>(CONTENT_TYPES);
+	private final ResourceCache resourceCache = new ResourceCache(CACHE_CAPACITY);
+	private final ResourceCache encodedResourceCache = new ResourceCache(ENCODED_CACHE_CAPACITY);
+	private final AtomicLong modificationCount = new AtomicLong();
+	private final WatchService resourceWatcher;
+	private volatile HttpResourcePack resourcePack;
+	private volatile CachedResource manifest;
+	private volatile boolean fingerprinting;
 
 
 	/**
@@ -73,6 +128,9 @@ public class HttpResourceHandler implements HttpHandler {
 		this.resourceDirectory = ZipPaths.isZipPath(resourceDirectory)
 			? resourceDirectory
 			: resourceDirectory.toAbsolutePath();
+		this.resourceWatcher = ZipPaths.isZipPath(resourceDirectory)
+			? null
+			: newResourceWatcher(this.resourceDirectory, this::invalidateManifest, this.resourceCache, this.encodedResourceCache);
 	}
 
 
@@ -105,7 +163,8 @@ public class HttpResourceHandler implements HttpHandler {
 
 	/**
 	 * Returns the handler's content type mappings. Note that the resulting map allows the registration of additional
-	 * content types.
+	 * content types, and that the mapped content types also decide which resources are compressible, see
+	 * {@link #isCompressible(String)}.
 	 * @return the content type mappings
 	 */
 	public Map<String,String> getContentTypes () {
@@ -113,6 +172,79 @@ public class HttpResourceHandler implements HttpHandler {
 	}
 
 
+	/**
+	 * Returns the resource pack.
+	 * @return the resource pack, or {@code null} for none
+	 */
+	public HttpResourcePack getResourcePack () {
+		return this.resourcePack;
+	}
+
+
+	/**
+	 * Returns whether or not fingerprinting is enabled.
+	 * @return whether or not fingerprinted resource paths and the fingerprint manifest are served
+	 */
+	public boolean isFingerprinting () {
+		return this.fingerprinting;
+	}
+
+
+	/**
+	 * Sets whether or not fingerprinting is enabled. If enabled, every resource is additionally accessible using
+	 * a fingerprinted alias path that inserts an 8 digit hexadecimal fingerprint of it's entity tag before it's extension,
+	 * as in "js/app.3f9a1c07.js" for "js/app.js". As the content behind such an alias never changes, it is served with
+	 * "Cache-Control: public, max-age=31536000, immutable". The manifest path "fingerprint-manifest.json" serves a JSON
+	 * object mapping the paths of all resources to their current fingerprinted paths.
+	 * @param fingerprinting whether or not fingerprinted resource paths and the fingerprint manifest are served
+	 */
+	public void setFingerprinting (final boolean fingerprinting) {
+		this.fingerprinting = fingerprinting;
+	}
+
+
+	/**
+	 * Packs all resources within this handler's resource directory tree into the given pack file, and subsequently
+	 * serves these resources from the memory-mapped pack file. Resources missing from the pack are still served from
+	 * the resource directory. Note that packing is intended for immutable resource directories, like the ones
+	 * accessed via class loader, as the pack is not updated once the resource directory is modified.
+	 * @param packFile the pack file
+	 * @return the resource pack created
+	 * @throws NullPointerException if the given argument is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public HttpResourcePack packResources (final Path packFile) throws NullPointerException, IOException {
+		this.resourcePack = HttpResourcePack.create(this.resourceDirectory, packFile, this::resourceType, this::isCompressible);
+		this.invalidateManifest();
+		return this.resourcePack;
+	}
+
+
+	/**
+	 * Packs all resources within this handler's resource directory tree into a new temporary pack file that is
+	 * deleted on exit, see {@link #packResources(Path)}, and reports the outcome. If packing fails, the resources
+	 * continue to be served from the resource directory.
+	 * @param packFilePrefix the temporary pack file's name prefix
+	 * @return whether or not the resources have been packed
+	 * @throws NullPointerException if the given argument is null
+	 */
+	public boolean packResourcesTemporarily (final String packFilePrefix) throws NullPointerException {
+		if (packFilePrefix == null) throw new NullPointerException();
+
+		final long timestamp = System.nanoTime();
+		try {
+			final Path packFile = Files.createTempFile(packFilePrefix, ".pack");
+			packFile.toFile().deleteOnExit();
+			final HttpResourcePack resourcePack = this.packResources(packFile);
+			System.out.format("Resource pack with %d resources (%d bytes) created in %d ms.%n", resourcePack.getEntries().size(), resourcePack.getBlobSize(), (System.nanoTime() - timestamp) / 1_000_000);
+			return true;
+		} catch (final IOException | UnsupportedOperationException exception) {
+			System.out.format("Resource pack creation failed, using resource directory access instead: %s%n", exception);
+			return false;
+		}
+	}
+
+
 	/**
 	 * {@inheritDoc}
 	 */
@@ -149,7 +281,7 @@ public class HttpResourceHandler implements HttpHandler {
 		final Path resolvedPath = this.resourceDirectory.resolve(resourcePath);
 		try {
 			return ZipPaths.isZipPath(this.resourceDirectory)
-				? this.resourceStream(resolvedPath.toString()).readAllBytes().length
+				? (long) this.cachedResource(resourcePath).content().length
 				: Files.size(resolvedPath);
 		} catch (final IOException exception) {
 			return null;
@@ -171,6 +303,29 @@ public class HttpResourceHandler implements HttpHandler {
 	}
 
 
+	/**
+	 * Returns whether or not the given resource is compressible. This is decided by the content type this handler's
+	 * content type mappings associate with the resource's extension, which is compressible if it is textual, i.e.
+	 * "text/*", or any type with an "xml", "json" or "javascript" subtype or structured syntax suffix, as in
+	 * "application/xml", "image/svg+xml" or "application/manifest+json". Resources with unmapped extensions are
+	 * not compressible, while extensions registered via {@link #getContentTypes()} are considered immediately.
+	 * @param resourcePath the resource path, relative to this handler's context directory
+	 * @return whether or not the resource is compressible
+	 * @throws NullPointerException if the given argument is null
+	 */
+	public final boolean isCompressible (final String resourcePath) throws NullPointerException {
+		if (resourcePath == null) throw new NullPointerException();
+
+		final String resourceExtension = resourcePath.substring(resourcePath.lastIndexOf('.') + 1).toLowerCase();
+		final String type = this.contentTypes.get(resourceExtension);
+		if (type == null) return false;
+
+		final String subtype = type.substring(type.indexOf('/') + 1);
+		final String syntax = subtype.substring(subtype.lastIndexOf('+') + 1);
+		return type.startsWith("text/") || COMPRESSIBLE_SYNTAXES.contains(syntax);
+	}
+
+
 	/**
 	 * Returns a new resource stream.
 	 * @param resourcePath the resource path, relative to this handler's context directory
@@ -189,6 +344,95 @@ public class HttpResourceHandler implements HttpHandler {
 	}
 
 
+	/**
+	 * Returns the cached resource for the given resource path, loading and caching it if required. Class loader based
+	 * resources are always loaded completely; however, they are not cached if they exceed the cache entry limit. File
+	 * system based resources exceeding the cache entry limit are neither loaded nor cached, and are only cached at all
+	 * if the resource directory is watched for modifications.
+	 * @param resourcePath the resource path, relative to this handler's context directory
+	 * @return the cached resource, or {@code null} if the resource exceeds the cache entry limit
+	 * @throws NullPointerException if the given argument is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public final CachedResource cachedResource (final String resourcePath) throws NullPointerException, IOException {
+		final Path resolvedResourcePath = this.resourceDirectory.resolve(resourcePath).normalize();
+		final String cacheKey = resolvedResourcePath.toString();
+		final boolean zipMode = ZipPaths.isZipPath(this.resourceDirectory);
+
+		final CachedResource cachedResource = this.resourceCache.getResource(cacheKey);
+		if (cachedResource != null) return cachedResource;
+		if (!zipMode && (!Files.isRegularFile(resolvedResourcePath) || Files.size(resolvedResourcePath) > CACHE_ENTRY_LIMIT)) {
+			if (!Files.exists(resolvedResourcePath)) throw new NoSuchFileException(resourcePath);
+			return null;
+		}
+
+		final long modified = zipMode ? 0L : Files.getLastModifiedTime(resolvedResourcePath).toMillis();
+		final byte[] content;
+		try (InputStream byteSource = this.resourceStream(resourcePath)) {
+			content = byteSource.readAllBytes();
+		}
+
+		final CachedResource resource = new CachedResource(content, this.resourceType(resourcePath), modified, null);
+		final boolean cacheable = zipMode || (this.resourceWatcher != null && Files.getLastModifiedTime(resolvedResourcePath).toMillis() == modified);
+		if (cacheable && content.length <= CACHE_ENTRY_LIMIT) this.resourceCache.putResource(cacheKey, resource);
+		return resource;
+	}
+
+
+	/**
+	 * Returns the encoded variant of the given resource for the given content encoding. A precompressed sibling resource
+	 * with the extension ".br" or ".gz" is preferred if present; otherwise, "gzip" encoded variants are compressed on the
+	 * fly. Encoded variants are cached in a separate resource cache, which is subject to the same caching rules as the
+	 * resources themselves; if caching is not possible, no on-the-fly compression is performed. File system based variants
+	 * are only cached if the given resource is still current, i.e. it's file has not been modified since it was read.
+	 * @param resourcePath the resource path, relative to this handler's context directory
+	 * @param resource the resource
+	 * @param encoding the content encoding, either "br" or "gzip"
+	 * @return the encoded resource variant, or {@code null} for none
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	public final CachedResource encodedResource (final String resourcePath, final CachedResource resource, final String encoding) throws NullPointerException, IOException {
+		final String siblingPath = resourcePath + (encoding.equals(ENCODING_BROTLI) ? ".br" : ".gz");
+		final String cacheKey = this.resourceDirectory.resolve(siblingPath).normalize().toString();
+		final boolean zipMode = ZipPaths.isZipPath(this.resourceDirectory);
+		final boolean cacheable = zipMode || this.resourceWatcher != null;
+
+		CachedResource encodedResource = this.encodedResourceCache.getResource(cacheKey);
+		if (encodedResource == null) {
+			byte[] content = this.siblingContent(siblingPath);
+			if (content == null && cacheable && encoding.equals(ENCODING_GZIP)) content = gzip(resource.content());
+			encodedResource = content == null ? ABSENT_RESOURCE : new CachedResource(content, resource.type(), resource.modified(), encoding);
+
+			final Path resolvedResourcePath = this.resourceDirectory.resolve(resourcePath).normalize();
+			if (cacheable && (zipMode || Files.getLastModifiedTime(resolvedResourcePath).toMillis() == resource.modified()))
+				this.encodedResourceCache.putResource(cacheKey, encodedResource);
+		}
+
+		return encodedResource == ABSENT_RESOURCE ? null : encodedResource;
+	}
+
+
+	/**
+	 * Returns the content of the given sibling resource.
+	 * @param siblingPath the sibling resource path, relative to this handler's context directory
+	 * @return the sibling resource content, or {@code null} if the sibling resource doesn't exist or exceeds the cache entry limit
+	 * @throws NullPointerException if the given argument is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private byte[] siblingContent (final String siblingPath) throws NullPointerException, IOException {
+		final Path resolvedSiblingPath = this.resourceDirectory.resolve(siblingPath).normalize();
+		if (!ZipPaths.isZipPath(this.resourceDirectory) && (!Files.isRegularFile(resolvedSiblingPath) || Files.size(resolvedSiblingPath) > CACHE_ENTRY_LIMIT)) return null;
+
+		try (InputStream byteSource = this.resourceStream(siblingPath)) {
+			final byte[] content = byteSource.readAllBytes();
+			return content.length <= CACHE_ENTRY_LIMIT ? content : null;
+		} catch (final NoSuchFileException exception) {
+			return null;
+		}
+	}
+
+
 	/**
 	 * Handles the given HTTP exchange by copying the content of it's request path to it's response. The request path is
 	 * interpreted to be relative to the handler's context directory, all path's outside of this scope are inaccessible.
@@ -232,7 +476,7 @@ public class HttpResourceHandler implements HttpHandler {
 
 
 	/**
-	 * Handles an HTTP GET request by returning the resource content.
+	 * Handles an HTTP GET request by returning the resource content, see {@link #handleResourceRequest(HttpExchange, boolean)}.
 	 * @param exchange the HTTP exchange
 	 * @throws NullPointerException if the given exchange is null
 	 * @throws IllegalArgumentException if the given exchange contains syntactically invalid data
@@ -240,15 +484,106 @@ public class HttpResourceHandler implements HttpHandler {
 	 * @throws IOException if there is an I/O related problem
 	 */
 	protected void handleGetRequest (final HttpExchange exchange) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
-		final String resourcePath = this.resourcePath(exchange.getRequestURI().getPath());
-		exchange.getResponseHeaders().add("Content-Type", this.resourceType(resourcePath));
-
-		try (InputStream resourceStream = this.resourceStream(resourcePath)) {
-			try (OutputStream bodyStream = exchange.getResponseBody()) {
-				final Long resourceSize = this.resourceSize(resourcePath);
-				final int responseCode = resourceSize == null || resourceSize != 0 ? OK : NO_CONTENT;
-				exchange.sendResponseHeaders(responseCode, resourceSize == null ? 0 : resourceSize);
-				resourceStream.transferTo(bodyStream);
+		this.handleResourceRequest(exchange, true);
+	}
+
+
+	/**
+	 * Handles an HTTP HEAD request by returning the resource headers, see {@link #handleResourceRequest(HttpExchange, boolean)}.
+	 * @param exchange the HTTP exchange
+	 * @throws NullPointerException if the given exchange is null
+	 * @throws IllegalArgumentException if the given exchange contains syntactically invalid data
+	 * @throws IllegalStateException if there is constraint violation
+	 * @throws IOException if there is an I/O related problem
+	 */
+	protected void handleHeadRequest (final HttpExchange exchange) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
+		this.handleResourceRequest(exchange, false);
+	}
+
+
+	/**
+	 * Handles an HTTP GET or HEAD request. Conditional requests using "If-None-Match" or "If-Modified-Since" are answered
+	 * with HTTP 304 Not Modified if the resource is unchanged. Requests containing a "Range" header are answered with
+	 * HTTP 206 Partial Content, containing either the single range requested, or a "multipart/byteranges" document
+	 * for multiple ranges; an "If-Range" header is honored. Unsatisfiable ranges cause HTTP 416 Range Not Satisfiable.
+	 * Cached resources whose content type is compressible are sent in the best encoding accepted by the client, see
+	 * {@link #encodedResource(String, CachedResource, String)}. If fingerprinting is enabled, requests for fingerprinted
+	 * resource paths are served with far-future caching, and requests for the manifest path are answered with the
+	 * fingerprint manifest, see {@link #setFingerprinting(boolean)}.
+	 * @param exchange the HTTP exchange
+	 * @param sendContent whether or not to send the resource content
+	 * @throws NullPointerException if the given exchange is null
+	 * @throws IllegalArgumentException if the given exchange contains syntactically invalid data
+	 * @throws IllegalStateException if there is constraint violation
+	 * @throws IOException if there is an I/O related problem
+	 */
+	protected void handleResourceRequest (final HttpExchange exchange, final boolean sendContent) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
+		final String requestedResourcePath = this.resourcePath(exchange.getRequestURI().getPath());
+		if (this.fingerprinting && requestedResourcePath.equals(MANIFEST_PATH)) {
+			this.sendManifest(exchange, sendContent);
+			return;
+		}
+
+		final String logicalResourcePath = this.fingerprinting ? this.logicalResourcePath(requestedResourcePath) : null;
+		if (logicalResourcePath != null) exchange.getResponseHeaders().set("Cache-Control", IMMUTABLE_CACHE_CONTROL);
+		final String resourcePath = logicalResourcePath == null ? requestedResourcePath : logicalResourcePath;
+
+		final HttpResourcePack resourcePack = this.resourcePack;
+		final HttpResourcePack.Entry packEntry = resourcePack == null ? null : resourcePack.entry(resourcePath);
+		if (packEntry != null) {
+			HttpResourcePack.Variant variant = packEntry.variant(null);
+			if (this.isCompressible(resourcePath)) {
+				exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+
+				final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+				for (final String encoding : new String[] { ENCODING_BROTLI, ENCODING_GZIP }) {
+					if (!isEncodingAccepted(acceptEncoding, encoding) || packEntry.variant(encoding) == null) continue;
+
+					exchange.getResponseHeaders().set("Content-Encoding", encoding);
+					variant = packEntry.variant(encoding);
+					break;
+				}
+			}
+
+			final ByteBuffer content = variant.content();
+			final RegionTransfer transfer = (position, length, byteSink) -> transferBuffer(content.slice((int) position, (int) length), byteSink);
+			this.sendResource(exchange, sendContent, packEntry.type(), variant.etag(), 0L, content.remaining(), transfer);
+			return;
+		}
+
+		try {
+			final CachedResource cachedResource = this.cachedResource(resourcePath);
+			if (cachedResource != null) {
+				CachedResource resource = cachedResource;
+				if (this.isCompressible(resourcePath) && cachedResource.content().length >= COMPRESSION_THRESHOLD) {
+					exchange.getResponseHeaders().add("Vary", "Accept-Encoding");
+
+					final String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+					for (final String encoding : new String[] { ENCODING_BROTLI, ENCODING_GZIP }) {
+						if (!isEncodingAccepted(acceptEncoding, encoding)) continue;
+
+						final CachedResource encodedResource = this.encodedResource(resourcePath, cachedResource, encoding);
+						if (encodedResource != null) {
+							exchange.getResponseHeaders().set("Content-Encoding", encodedResource.encoding());
+							resource = encodedResource;
+							break;
+						}
+					}
+				}
+
+				final byte[] content = resource.content();
+				final RegionTransfer transfer = (position, length, byteSink) -> byteSink.write(content, (int) position, (int) length);
+				this.sendResource(exchange, sendContent, resource.type(), resource.etag(), resource.modified(), content.length, transfer);
+				return;
+			}
+
+			final Path resolvedResourcePath = this.resourceDirectory.resolve(resourcePath);
+			try (FileChannel fileChannel = FileChannel.open(resolvedResourcePath, StandardOpenOption.READ)) {
+				final long resourceSize = fileChannel.size();
+				final long resourceModified = Files.getLastModifiedTime(resolvedResourcePath).toMillis();
+				final String resourceETag = fileETag(resourceSize, resourceModified);
+				final RegionTransfer transfer = (position, length, byteSink) -> transferMapped(fileChannel, position, length, byteSink);
+				this.sendResource(exchange, sendContent, this.resourceType(resourcePath), resourceETag, resourceModified, resourceSize, transfer);
 			}
 		} catch (final NoSuchFileException | AccessDeniedException exception) {
 			exchange.sendResponseHeaders(NOT_FOUND, -1);
@@ -257,15 +592,208 @@ public class HttpResourceHandler implements HttpHandler {
 
 
 	/**
-	 * Handles an HTTP HEAD request.
+	 * Sends the fingerprint manifest, which is a JSON object mapping the paths of all resources
+	 * within this handler's resource directory tree to their fingerprinted resource paths.
+	 * The manifest is cached unless the resource directory can be modified without notice,
+	 * i.e. unless it is a file system directory that cannot be watched.
 	 * @param exchange the HTTP exchange
+	 * @param sendContent whether or not to send the manifest content
 	 * @throws NullPointerException if the given exchange is null
-	 * @throws IllegalArgumentException if the given exchange contains syntactically invalid data
-	 * @throws IllegalStateException if there is constraint violation
 	 * @throws IOException if there is an I/O related problem
 	 */
-	protected void handleHeadRequest (final HttpExchange exchange) throws NullPointerException, IllegalArgumentException, IllegalStateException, IOException {
-		exchange.sendResponseHeaders(METHOD_NOT_ALLOWED, -1);
+	private void sendManifest (final HttpExchange exchange, final boolean sendContent) throws NullPointerException, IOException {
+		CachedResource manifest = this.manifest;
+		if (manifest == null) {
+			final long modificationCount = this.modificationCount.get();
+			manifest = new CachedResource(this.createManifest(), "application/json", 0L, null);
+
+			final boolean cacheable = ZipPaths.isZipPath(this.resourceDirectory) || this.resourceWatcher != null || this.resourcePack != null;
+			if (cacheable) {
+				this.manifest = manifest;
+				if (this.modificationCount.get() != modificationCount) this.manifest = null;
+			}
+		}
+
+		final byte[] content = manifest.content();
+		exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+		this.sendResource(exchange, sendContent, manifest.type(), manifest.etag(), 0L, content.length, (position, length, byteSink) -> byteSink.write(content, (int) position, (int) length));
+	}
+
+
+	/**
+	 * Returns the content of a new fingerprint manifest.
+	 * @return the manifest content
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private byte[] createManifest () throws IOException {
+		final HttpResourcePack resourcePack = this.resourcePack;
+		final Set<String> resourcePaths = new TreeSet<>();
+		if (resourcePack != null) {
+			resourcePaths.addAll(resourcePack.getEntries().keySet());
+		} else {
+			try (Stream<Path> paths = Files.walk(this.resourceDirectory)) {
+				paths
+					.filter(Files::isRegularFile)
+					.map(path -> this.resourceDirectory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"))
+					.forEach(resourcePaths::add);
+			}
+		}
+
+		final StringBuilder manifest = new StringBuilder("{");
+		for (final String resourcePath : resourcePaths) {
+			final String etag = this.resourceETag(resourcePath);
+			if (etag == null) continue;
+
+			final int extensionPosition = resourcePath.lastIndexOf('.') > resourcePath.lastIndexOf('/') ? resourcePath.lastIndexOf('.') : resourcePath.length();
+			final String fingerprintedPath = resourcePath.substring(0, extensionPosition) + "." + fingerprint(etag) + resourcePath.substring(extensionPosition);
+			if (manifest.length() > 1) manifest.append(',');
+			manifest.append("\n\t\"").append(jsonEscape(resourcePath)).append("\": \"").append(jsonEscape(fingerprintedPath)).append('"');
+		}
+		manifest.append("\n}\n");
+
+		return manifest.toString().getBytes(UTF_8);
+	}
+
+
+	/**
+	 * Invalidates the cached fingerprint manifest, which is called whenever the resource directory tree is modified.
+	 */
+	private void invalidateManifest () {
+		this.modificationCount.incrementAndGet();
+		this.manifest = null;
+	}
+
+
+	/**
+	 * Returns the logical resource path for the given fingerprinted resource path, which is expected to insert the
+	 * resource's fingerprint before it's extension, as in "js/app.3f9a1c07.js" for "js/app.js". The fingerprint
+	 * must match the current content of the resource; stale fingerprints are therefore not resolved.
+	 * @param resourcePath the resource path, relative to this handler's context directory
+	 * @return the logical resource path, or {@code null} if the given resource path is not a valid fingerprinted path
+	 * @throws NullPointerException if the given argument is null
+	 */
+	private String logicalResourcePath (final String resourcePath) throws NullPointerException {
+		final Matcher matcher = FINGERPRINT_PATTERN.matcher(resourcePath);
+		if (!matcher.matches()) return null;
+
+		final String logicalResourcePath = matcher.group(1) + matcher.group(3);
+		try {
+			final String etag = this.resourceETag(logicalResourcePath);
+			return etag != null && fingerprint(etag).equals(matcher.group(2)) ? logicalResourcePath : null;
+		} catch (final IOException exception) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Returns the identity entity tag of the given resource.
+	 * @param resourcePath the resource path, relative to this handler's context directory
+	 * @return the entity tag, or {@code null} if the resource doesn't exist
+	 * @throws NullPointerException if the given argument is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private String resourceETag (final String resourcePath) throws NullPointerException, IOException {
+		final HttpResourcePack resourcePack = this.resourcePack;
+		final HttpResourcePack.Entry packEntry = resourcePack == null ? null : resourcePack.entry(resourcePath);
+		if (packEntry != null) return packEntry.variant(null).etag();
+
+		try {
+			final CachedResource cachedResource = this.cachedResource(resourcePath);
+			if (cachedResource != null) return cachedResource.etag();
+
+			final Path resolvedResourcePath = this.resourceDirectory.resolve(resourcePath);
+			return fileETag(Files.size(resolvedResourcePath), Files.getLastModifiedTime(resolvedResourcePath).toMillis());
+		} catch (final NoSuchFileException | AccessDeniedException exception) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Sends the given resource's headers, and optionally it's content or the content ranges requested.
+	 * @param exchange the HTTP exchange
+	 * @param sendContent whether or not to send the resource content
+	 * @param type the resource content type
+	 * @param etag the strong resource entity tag
+	 * @param modified the resource modification timestamp in milliseconds since 1970-01-01, or {@code 0} if unknown
+	 * @param size the resource size
+	 * @param transfer the resource region transfer
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void sendResource (final HttpExchange exchange, final boolean sendContent, final String type, final String etag, final long modified, final long size, final RegionTransfer transfer) throws NullPointerException, IOException {
+		final Headers requestHeaders = exchange.getRequestHeaders();
+		final Headers responseHeaders = exchange.getResponseHeaders();
+		responseHeaders.set("Accept-Ranges", "bytes");
+		responseHeaders.set("ETag", etag);
+		if (modified != 0) responseHeaders.set("Last-Modified", formatHttpDate(modified));
+
+		if (isNotModified(requestHeaders, etag, modified)) {
+			exchange.sendResponseHeaders(NOT_MODIFIED, -1);
+			return;
+		}
+
+		final List<long[]> ranges = isRangeApplicable(requestHeaders, etag, modified) ? parseRanges(requestHeaders.getFirst("Range"), size) : null;
+		if (ranges != null && ranges.isEmpty()) {
+			responseHeaders.set("Content-Range", "bytes */" + size);
+			exchange.sendResponseHeaders(RANGE_NOT_SATISFIABLE, -1);
+			return;
+		}
+
+		if (ranges == null) {
+			responseHeaders.set("Content-Type", type);
+			this.sendContent(exchange, sendContent, size == 0 ? NO_CONTENT : OK, size, byteSink -> transfer.transfer(0, size, byteSink));
+		} else if (ranges.size() == 1) {
+			final long[] range = ranges.get(0);
+			responseHeaders.set("Content-Type", type);
+			responseHeaders.set("Content-Range", "bytes " + range[0] + "-" + range[1] + "/" + size);
+			this.sendContent(exchange, sendContent, PARTIAL_CONTENT, range[1] - range[0] + 1, byteSink -> transfer.transfer(range[0], range[1] - range[0] + 1, byteSink));
+		} else {
+			final String boundary = Long.toHexString(ThreadLocalRandom.current().nextLong()) + Long.toHexString(ThreadLocalRandom.current().nextLong());
+			final List<byte[]> partHeaders = ranges.stream()
+				.map(range -> ("\r\n--" + boundary + "\r\nContent-Type: " + type + "\r\nContent-Range: bytes " + range[0] + "-" + range[1] + "/" + size + "\r\n\r\n").getBytes(US_ASCII))
+				.collect(Collectors.toList());
+			final byte[] terminator = ("\r\n--" + boundary + "--\r\n").getBytes(US_ASCII);
+			long length = terminator.length;
+			for (int index = 0; index < ranges.size(); ++index)
+				length += partHeaders.get(index).length + ranges.get(index)[1] - ranges.get(index)[0] + 1;
+
+			responseHeaders.set("Content-Type", "multipart/byteranges; boundary=" + boundary);
+			this.sendContent(exchange, sendContent, PARTIAL_CONTENT, length, byteSink -> {
+				for (int index = 0; index < ranges.size(); ++index) {
+					final long[] range = ranges.get(index);
+					byteSink.write(partHeaders.get(index));
+					transfer.transfer(range[0], range[1] - range[0] + 1, byteSink);
+				}
+				byteSink.write(terminator);
+			});
+		}
+	}
+
+
+	/**
+	 * Sends the response headers, and optionally the response content. Note that the JDK HTTP server requires
+	 * the content length header of HEAD responses to be set manually.
+	 * @param exchange the HTTP exchange
+	 * @param sendContent whether or not to send the response content
+	 * @param responseCode the response code
+	 * @param length the response content length
+	 * @param contentTransfer the response content transfer
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	private void sendContent (final HttpExchange exchange, final boolean sendContent, final int responseCode, final long length, final ContentTransfer contentTransfer) throws NullPointerException, IOException {
+		if (!sendContent || length == 0) {
+			if (responseCode != NO_CONTENT) exchange.getResponseHeaders().set("Content-Length", Long.toString(length));
+			exchange.sendResponseHeaders(responseCode, -1);
+			return;
+		}
+
+		try (OutputStream bodyStream = exchange.getResponseBody()) {
+			exchange.sendResponseHeaders(responseCode, length);
+			contentTransfer.transfer(bodyStream);
+		}
 	}
 
 
@@ -378,4 +906,532 @@ public class HttpResourceHandler implements HttpHandler {
 		if (!contextPath.endsWith("/")) contextPath += "/";
 		return contextPath;
 	}
+
+
+	/**
+	 * Returns whether or not the given request headers represent a conditional request for an unchanged
+	 * resource. Note that "If-Modified-Since" is ignored if "If-None-Match" is present.
+	 * @param requestHeaders the request headers
+	 * @param etag the strong resource entity tag
+	 * @param modified the resource modification timestamp in milliseconds since 1970-01-01, or {@code 0} if unknown
+	 * @return whether or not the resource is unchanged
+	 * @throws NullPointerException if any of the given arguments is null
+	 */
+	static private boolean isNotModified (final Headers requestHeaders, final String etag, final long modified) throws NullPointerException {
+		final String ifNoneMatch = requestHeaders.getFirst("If-None-Match");
+		if (ifNoneMatch != null) {
+			for (final String candidate : ifNoneMatch.split(",")) {
+				final String tag = candidate.trim();
+				if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) return true;
+			}
+			return false;
+		}
+
+		final Long ifModifiedSince = parseHttpDate(requestHeaders.getFirst("If-Modified-Since"));
+		return modified != 0 && ifModifiedSince != null && modified / 1000 <= ifModifiedSince / 1000;
+	}
+
+
+	/**
+	 * Returns whether or not a "Range" header within the given request headers shall be honored, which is the case
+	 * if such a header is present, and any "If-Range" header present matches the resource's current state.
+	 * @param requestHeaders the request headers
+	 * @param etag the strong resource entity tag
+	 * @param modified the resource modification timestamp in milliseconds since 1970-01-01, or {@code 0} if unknown
+	 * @return whether or not the range header shall be honored
+	 * @throws NullPointerException if any of the given arguments is null
+	 */
+	static private boolean isRangeApplicable (final Headers requestHeaders, final String etag, final long modified) throws NullPointerException {
+		if (requestHeaders.getFirst("Range") == null) return false;
+
+		final String ifRange = requestHeaders.getFirst("If-Range");
+		if (ifRange == null) return true;
+		if (ifRange.trim().startsWith("\"")) return ifRange.trim().equals(etag);
+
+		final Long ifRangeModified = parseHttpDate(ifRange);
+		return modified != 0 && ifRangeModified != null && modified / 1000 == ifRangeModified / 1000;
+	}
+
+
+	/**
+	 * Returns the satisfiable byte ranges requested by the given range header, with their positions inclusive.
+	 * @param rangeHeader the range header
+	 * @param size the resource size
+	 * @return the satisfiable byte ranges, which is empty if none is satisfiable, or {@code null} if the
+	 * 		   range header is malformed or requests too many ranges, and shall therefore be ignored
+	 * @throws NullPointerException if the given range header is null
+	 */
+	static private List<long[]> parseRanges (final String rangeHeader, final long size) throws NullPointerException {
+		if (!rangeHeader.startsWith("bytes=")) return null;
+
+		final String[] rangeSpecifications = rangeHeader.substring(6).split(",");
+		if (rangeSpecifications.length > MAX_RANGE_COUNT) return null;
+
+		final List<long[]> ranges = new ArrayList<>();
+		try {
+			for (final String rangeSpecification : rangeSpecifications) {
+				final String specification = rangeSpecification.trim();
+				final int delimiterPosition = specification.indexOf('-');
+				if (delimiterPosition == -1) return null;
+
+				final String first = specification.substring(0, delimiterPosition).trim(), last = specification.substring(delimiterPosition + 1).trim();
+				final long start, end;
+				if (first.isEmpty()) {
+					final long suffixLength = Long.parseLong(last);
+					if (suffixLength < 0) return null;
+					if (suffixLength == 0) continue;
+					start = Math.max(0, size - suffixLength);
+					end = size - 1;
+				} else {
+					start = Long.parseLong(first);
+					final long lastPosition = last.isEmpty() ? Long.MAX_VALUE : Long.parseLong(last);
+					if (start < 0 | lastPosition < start) return null;
+					end = Math.min(size - 1, lastPosition);
+				}
+
+				if (start < size) ranges.add(new long[] { start, end });
+			}
+		} catch (final NumberFormatException exception) {
+			return null;
+		}
+
+		return ranges;
+	}
+
+
+	/**
+	 * Returns whether or not the given content encoding is accepted by the given "Accept-Encoding" header,
+	 * which is the case if it is listed either explicitly or via wildcard with a quality value above zero.
+	 * @param acceptEncoding the "Accept-Encoding" header, or {@code null} for none
+	 * @param encoding the content encoding
+	 * @return whether or not the content encoding is accepted
+	 * @throws NullPointerException if the given encoding is null
+	 */
+	static private boolean isEncodingAccepted (final String acceptEncoding, final String encoding) throws NullPointerException {
+		if (acceptEncoding == null) return false;
+
+		Boolean wildcardAccepted = null;
+		for (final String element : acceptEncoding.split(",")) {
+			final String[] parameters = element.split(";");
+			final String coding = parameters[0].trim().toLowerCase();
+			double quality = 1.0;
+			for (int index = 1; index < parameters.length; ++index) {
+				final String parameter = parameters[index].trim();
+				if (parameter.startsWith("q=")) {
+					try {
+						quality = Double.parseDouble(parameter.substring(2));
+					} catch (final NumberFormatException exception) {
+						quality = 0.0;
+					}
+				}
+			}
+
+			if (coding.equals(encoding)) return quality > 0;
+			if (coding.equals("*")) wildcardAccepted = quality > 0;
+		}
+
+		return wildcardAccepted == Boolean.TRUE;
+	}
+
+
+	/**
+	 * Returns the given content compressed using "gzip".
+	 * @param content the content
+	 * @return the compressed content
+	 * @throws NullPointerException if the given argument is null
+	 */
+	static byte[] gzip (final byte[] content) throws NullPointerException {
+		final ByteArrayOutputStream byteSink = new ByteArrayOutputStream(content.length / 2);
+		try (OutputStream compressedSink = new GZIPOutputStream(byteSink)) {
+			compressedSink.write(content);
+		} catch (final IOException exception) {
+			throw new AssertionError(exception);
+		}
+
+		return byteSink.toByteArray();
+	}
+
+
+	/**
+	 * Returns the strong entity tag for the given content, based on it's SHA-256 hash code.
+	 * @param content the content
+	 * @return the entity tag, including it's quotes
+	 * @throws NullPointerException if the given argument is null
+	 */
+	static String etag (final byte[] content) throws NullPointerException {
+		try {
+			final byte[] hash = MessageDigest.getInstance("SHA-256").digest(content);
+			return "\"" + HexFormat.of().formatHex(hash, 0, 16) + "\"";
+		} catch (final NoSuchAlgorithmException exception) {
+			throw new AssertionError(exception);
+		}
+	}
+
+
+	/**
+	 * Returns the entity tag for a file resource too large to be hashed on demand, based on it's size and modification timestamp.
+	 * @param size the file size
+	 * @param modified the file modification timestamp in milliseconds since 1970-01-01
+	 * @return the entity tag, including it's quotes
+	 */
+	static private String fileETag (final long size, final long modified) {
+		return "\"" + Long.toHexString(size) + "-" + Long.toHexString(modified) + "\"";
+	}
+
+
+	/**
+	 * Returns the fingerprint for the given entity tag, which is the prefix of it's SHA-256 based content hash. Entity tags
+	 * of file resources too large to be hashed on demand are based on size and modification timestamp instead; their
+	 * fingerprint is the prefix of the SHA-256 based entity tag of the entity tag itself.
+	 * @param etag the entity tag, including it's quotes
+	 * @return the fingerprint, consisting of 8 hexadecimal digits
+	 * @throws NullPointerException if the given argument is null
+	 */
+	static private String fingerprint (final String etag) throws NullPointerException {
+		final String contentHash = CONTENT_ETAG_PATTERN.matcher(etag).matches() ? etag : etag(etag.getBytes(US_ASCII));
+		return contentHash.substring(1, 9);
+	}
+
+
+	/**
+	 * Returns the given text escaped for use within a JSON string.
+	 * @param text the text
+	 * @return the escaped text
+	 * @throws NullPointerException if the given argument is null
+	 */
+	static private String jsonEscape (final String text) throws NullPointerException {
+		final StringBuilder builder = new StringBuilder();
+		for (final char character : text.toCharArray()) {
+			if (character == '"' || character == '\\') builder.append('\\').append(character);
+			else if (character < 0x20) builder.append(String.format("\\u%04x", (int) character));
+			else builder.append(character);
+		}
+		return builder.toString();
+	}
+
+
+	/**
+	 * Returns the given timestamp formatted as an HTTP date.
+	 * @param timestamp the timestamp in milliseconds since 1970-01-01
+	 * @return the HTTP date
+	 */
+	static private String formatHttpDate (final long timestamp) {
+		return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(timestamp).atOffset(ZoneOffset.UTC));
+	}
+
+
+	/**
+	 * Returns the given HTTP date parsed into a timestamp.
+	 * @param httpDate the HTTP date, or {@code null}
+	 * @return the timestamp in milliseconds since 1970-01-01, or {@code null} if the given HTTP date is {@code null} or invalid
+	 */
+	static private Long parseHttpDate (final String httpDate) {
+		if (httpDate == null) return null;
+
+		try {
+			return ZonedDateTime.parse(httpDate.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		} catch (final DateTimeParseException exception) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Transfers the given file channel region to the given byte sink. The region is memory-mapped in windows, and
+	 * copied to the byte sink in large chunks, which avoids both the read system calls and the intermediate buffer
+	 * copies of stream based transfers; the JDK HTTP server does not expose it's socket channels, which prevents
+	 * transferring the file content directly from the page cache to the socket.
+	 * @param fileChannel the file channel
+	 * @param position the region position
+	 * @param length the region length
+	 * @param byteSink the byte sink
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem, including the file being truncated during the transfer
+	 */
+	static void transferMapped (final FileChannel fileChannel, final long position, final long length, final OutputStream byteSink) throws NullPointerException, IOException {
+		try {
+			for (long offset = position, limit = position + length; offset < limit; ) {
+				final MappedByteBuffer window = fileChannel.map(MapMode.READ_ONLY, offset, Math.min(limit - offset, MAP_WINDOW_SIZE));
+				offset += window.capacity();
+				transferBuffer(window, byteSink);
+			}
+		} catch (final InternalError error) {
+			throw new IOException("file truncated during transfer", error);
+		}
+	}
+
+
+	/**
+	 * Transfers the remaining content of the given buffer to the given byte sink, in large chunks.
+	 * @param buffer the buffer, which is consumed
+	 * @param byteSink the byte sink
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void transferBuffer (final ByteBuffer buffer, final OutputStream byteSink) throws NullPointerException, IOException {
+		final byte[] chunk = new byte[Math.min(buffer.remaining(), TRANSFER_CHUNK_SIZE)];
+		while (buffer.hasRemaining()) {
+			final int chunkSize = Math.min(buffer.remaining(), chunk.length);
+			buffer.get(chunk, 0, chunkSize);
+			byteSink.write(chunk, 0, chunkSize);
+		}
+	}
+
+
+	/**
+	 * Returns a new watch service for the given resource directory tree, and starts a daemon thread that
+	 * invalidates the cached resources within the given resource caches, and notifies the given modification
+	 * listener, whenever a watched file or directory is modified.
+	 * @param resourceDirectory the resource directory
+	 * @param modificationListener the modification listener
+	 * @param resourceCaches the resource caches
+	 * @return the watch service created, or {@code null} if the resource directory cannot be watched
+	 * @throws NullPointerException if any of the given arguments is null
+	 */
+	static private WatchService newResourceWatcher (final Path resourceDirectory, final Runnable modificationListener, final ResourceCache... resourceCaches) throws NullPointerException {
+		final WatchService resourceWatcher;
+		try {
+			resourceWatcher = FileSystems.getDefault().newWatchService();
+			registerDirectoryTree(resourceWatcher, resourceDirectory);
+		} catch (final UnsupportedOperationException | IOException exception) {
+			return null;
+		}
+
+		Thread.ofPlatform().name("resource-watcher").daemon(true).start(() -> {
+			try {
+				for (WatchKey key = resourceWatcher.take(); true; key = resourceWatcher.take()) {
+					final Path directory = (Path) key.watchable();
+
+					for (final WatchEvent<?> event : key.pollEvents()) {
+						modificationListener.run();
+						if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+							for (final ResourceCache resourceCache : resourceCaches)
+								resourceCache.clearResources();
+							continue;
+						}
+
+						final Path path = directory.resolve((Path) event.context());
+						for (final ResourceCache resourceCache : resourceCaches)
+							resourceCache.removeResources(path.toString());
+						if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+							try {
+								registerDirectoryTree(resourceWatcher, path);
+							} catch (final IOException exception) {
+								for (final ResourceCache resourceCache : resourceCaches)
+									resourceCache.clearResources();
+							}
+						}
+					}
+
+					key.reset();
+				}
+			} catch (final InterruptedException | ClosedWatchServiceException exception) {
+				// do nothing
+			}
+		});
+
+		return resourceWatcher;
+	}
+
+
+	/**
+	 * Registers the given directory and all it's sub-directories with the given watch service.
+	 * @param resourceWatcher the watch service
+	 * @param directory the directory
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void registerDirectoryTree (final WatchService resourceWatcher, final Path directory) throws NullPointerException, IOException {
+		try (Stream<Path> directories = Files.walk(directory).filter(Files::isDirectory)) {
+			for (final Path path : (Iterable<Path>) directories::iterator)
+				path.register(resourceWatcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+		}
+	}
+
+
+
+	/**
+	 * Functional interface for transferring resource regions.
+	 */
+	@FunctionalInterface
+	static private interface RegionTransfer {
+
+		/**
+		 * Transfers the given resource region to the given byte sink.
+		 * @param position the region position
+		 * @param length the region length
+		 * @param byteSink the byte sink
+		 * @throws IOException if there is an I/O related problem
+		 */
+		void transfer (long position, long length, OutputStream byteSink) throws IOException;
+	}
+
+
+
+	/**
+	 * Functional interface for transferring response content.
+	 */
+	@FunctionalInterface
+	static private interface ContentTransfer {
+
+		/**
+		 * Transfers the response content to the given byte sink.
+		 * @param byteSink the byte sink
+		 * @throws IOException if there is an I/O related problem
+		 */
+		void transfer (OutputStream byteSink) throws IOException;
+	}
+
+
+
+	/**
+	 * Cached resource type, carrying a resource's content, content type, modification timestamp, content encoding
+	 * and strong entity tag.
+	 */
+	static public final class CachedResource {
+		private final byte[] content;
+		private final String type;
+		private final long modified;
+		private final String encoding;
+		private final String etag;
+
+
+		/**
+		 * Initializes a new instance, and computes it's strong entity tag.
+		 * @param content the resource content
+		 * @param type the resource content type
+		 * @param modified the modification timestamp in milliseconds since 1970-01-01, or {@code 0} if unknown
+		 * @param encoding the content encoding, or {@code null} for identity
+		 * @throws NullPointerException if the given content or type is null
+		 */
+		CachedResource (final byte[] content, final String type, final long modified, final String encoding) throws NullPointerException {
+			this.content = content;
+			this.type = Objects.requireNonNull(type);
+			this.modified = modified;
+			this.encoding = encoding;
+
+			this.etag = HttpResourceHandler.etag(content);
+		}
+
+
+		/**
+		 * Returns the content. Note that the array returned is shared and must not be modified.
+		 * @return the resource content
+		 */
+		public byte[] content () {
+			return this.content;
+		}
+
+
+		/**
+		 * Returns the content type.
+		 * @return the resource content type
+		 */
+		public String type () {
+			return this.type;
+		}
+
+
+		/**
+		 * Returns the modification timestamp.
+		 * @return the modification timestamp in milliseconds since 1970-01-01, or {@code 0} if unknown
+		 */
+		public long modified () {
+			return this.modified;
+		}
+
+
+		/**
+		 * Returns the content encoding.
+		 * @return the content encoding, or {@code null} for identity
+		 */
+		public String encoding () {
+			return this.encoding;
+		}
+
+
+		/**
+		 * Returns the strong entity tag, including it's quotes.
+		 * @return the entity tag
+		 */
+		public String etag () {
+			return this.etag;
+		}
+	}
+
+
+
+	/**
+	 * Resource cache type, evicting the least recently used resources once the total
+	 * size of the resource content contained within exceeds the cache capacity.
+	 */
+	static private class ResourceCache extends LinkedHashMap<String,CachedResource> {
+		private static final long serialVersionUID = 1L;
+
+		private final long capacity;
+		private long size;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param capacity the cache capacity in bytes
+		 */
+		ResourceCache (final long capacity) {
+			super(16, 0.75f, true);
+			this.capacity = capacity;
+		}
+
+
+		/**
+		 * Returns the cached resource for the given key.
+		 * @param key the resource key
+		 * @return the cached resource, or {@code null} for none
+		 */
+		synchronized CachedResource getResource (final String key) {
+			return this.get(key);
+		}
+
+
+		/**
+		 * Caches the given resource, and evicts the least recently used resources if required.
+		 * @param key the resource key
+		 * @param resource the resource
+		 */
+		synchronized void putResource (final String key, final CachedResource resource) {
+			final CachedResource replacedResource = this.put(key, resource);
+			if (replacedResource != null) this.size -= replacedResource.content().length;
+			this.size += resource.content().length;
+
+			for (final Iterator<CachedResource> iterator = this.values().iterator(); this.size > this.capacity && iterator.hasNext(); ) {
+				this.size -= iterator.next().content().length;
+				iterator.remove();
+			}
+		}
+
+
+		/**
+		 * Removes the cached resources for the given key, for all keys below it, and for all
+		 * keys of it's sibling variants, i.e. keys extending the given key by an extension.
+		 * @param key the resource key, which may denote a directory
+		 */
+		synchronized void removeResources (final String key) {
+			final String directoryKey = key.endsWith(File.separator) ? key : key + File.separator;
+			for (final Iterator<Map.Entry<String,CachedResource>> iterator = this.entrySet().iterator(); iterator.hasNext(); ) {
+				final Map.Entry<String,CachedResource> entry = iterator.next();
+				if (entry.getKey().equals(key) || entry.getKey().startsWith(directoryKey) || entry.getKey().startsWith(key + ".")) {
+					this.size -= entry.getValue().content().length;
+					iterator.remove();
+				}
+			}
+		}
+
+
+		/**
+		 * Removes all cached resources.
+		 */
+		synchronized void clearResources () {
+			this.clear();
+			this.size = 0;
+		}
+	}
 }
\ No newline at end of file
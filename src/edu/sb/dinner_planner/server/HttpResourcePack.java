@@ -0,0 +1,290 @@
+package edu.sb.dinner_planner.server;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import edu.sb.tool.Copyright;
+
+
+/**
+ * Memory-mapped resource pack, containing the content of all resources of a resource directory tree within a single
+ * file. The pack file consists of a header, a blob region, and a trailing index; blobs are written as they are produced,
+ * so packing only requires one resource at a time to be held in memory. The index maps each resource path to it's
+ * content type, and to the offset, length and strong entity tag of it's identity blob, plus those of optional "gzip"
+ * and "br" blobs. Compressible resources are precompressed with "gzip" when the pack is created, unless a precompressed
+ * sibling resource with the extension ".gz" exists, while "br" blobs are taken from precompressed sibling resources with
+ * the extension ".br"; such siblings are not packed as resources of their own. Once opened, resource content is served as
+ * slices of the mapped pack file, without any further resource lookup or decompression.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class HttpResourcePack {
+	static private final int MAGIC = 0x44505250;
+	static private final int VERSION = 2;
+	static private final int HEADER_SIZE = 16;
+	static private final String[] ENCODINGS = { null, "gzip", "br" };
+
+	private final Path packFile;
+	private final ByteBuffer blobs;
+	private final Map<String,Entry> entries;
+
+
+	/**
+	 * Creates a new pack file containing all regular files within the given resource directory tree,
+	 * and returns the resource pack opened from it.
+	 * @param resourceDirectory the resource directory
+	 * @param packFile the pack file
+	 * @param typeResolver the function resolving content types from resource paths
+	 * @param compressible the predicate deciding which resources are compressible, based on their paths
+	 * @return the resource pack created
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static public HttpResourcePack create (final Path resourceDirectory, final Path packFile, final Function<String,String> typeResolver, final Predicate<String> compressible) throws NullPointerException, IOException {
+		final Set<String> resourcePathSet;
+		try (Stream<Path> paths = Files.walk(resourceDirectory)) {
+			resourcePathSet = paths
+				.filter(Files::isRegularFile)
+				.map(path -> resourceDirectory.relativize(path).toString().replace(path.getFileSystem().getSeparator(), "/"))
+				.collect(Collectors.toSet());
+		}
+
+		final List<String> resourcePaths = resourcePathSet.stream()
+			.filter(resourcePath -> !isPrecompressedSibling(resourcePath, resourcePathSet))
+			.sorted()
+			.collect(Collectors.toList());
+
+		final ByteArrayOutputStream indexSink = new ByteArrayOutputStream();
+		try (FileChannel fileChannel = FileChannel.open(packFile, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			fileChannel.position(HEADER_SIZE);
+			final OutputStream blobSink = new BufferedOutputStream(Channels.newOutputStream(fileChannel));
+			long blobOffset = 0;
+
+			try (DataOutputStream indexWriter = new DataOutputStream(indexSink)) {
+				for (final String resourcePath : resourcePaths) {
+					final String type = typeResolver.apply(resourcePath);
+					final byte[] content = Files.readAllBytes(resourceDirectory.resolve(resourcePath));
+					final byte[] gzipContent = resourcePathSet.contains(resourcePath + ".gz")
+						? Files.readAllBytes(resourceDirectory.resolve(resourcePath + ".gz"))
+						: compressible.test(resourcePath) ? HttpResourceHandler.gzip(content) : null;
+					final byte[] brotliContent = resourcePathSet.contains(resourcePath + ".br") ? Files.readAllBytes(resourceDirectory.resolve(resourcePath + ".br")) : null;
+
+					indexWriter.writeUTF(resourcePath);
+					indexWriter.writeUTF(type);
+					for (final byte[] blob : new byte[][] { content, gzipContent != null && gzipContent.length < content.length ? gzipContent : null, brotliContent }) {
+						indexWriter.writeLong(blob == null ? -1L : blobOffset);
+						indexWriter.writeInt(blob == null ? 0 : blob.length);
+						indexWriter.writeUTF(blob == null ? "" : HttpResourceHandler.etag(blob));
+						if (blob == null) continue;
+
+						blobSink.write(blob);
+						blobOffset += blob.length;
+						if (blobOffset > Integer.MAX_VALUE) throw new IOException("resource directory too large for packing: " + resourceDirectory);
+					}
+				}
+			}
+
+			indexSink.writeTo(blobSink);
+			blobSink.flush();
+
+			final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(VERSION).putInt(resourcePaths.size()).putInt(indexSink.size()).flip();
+			while (header.hasRemaining())
+				fileChannel.write(header, header.position());
+		}
+
+		return new HttpResourcePack(packFile);
+	}
+
+
+	/**
+	 * Returns whether or not the given resource path denotes a precompressed sibling resource with the extension ".gz"
+	 * or ".br", whose content is packed as a variant of the resource it has been derived from.
+	 * @param resourcePath the resource path
+	 * @param resourcePaths the resource paths within the resource directory tree
+	 * @return whether or not the given resource path denotes a precompressed sibling
+	 * @throws NullPointerException if any of the given arguments is null
+	 */
+	static private boolean isPrecompressedSibling (final String resourcePath, final Set<String> resourcePaths) throws NullPointerException {
+		return (resourcePath.endsWith(".gz") || resourcePath.endsWith(".br")) && resourcePaths.contains(resourcePath.substring(0, resourcePath.length() - 3));
+	}
+
+
+	/**
+	 * Opens a resource pack by memory-mapping the given pack file.
+	 * @param packFile the pack file
+	 * @throws NullPointerException if the given argument is null
+	 * @throws IOException if there is an I/O related problem, or if the given file is not a valid pack file
+	 */
+	public HttpResourcePack (final Path packFile) throws NullPointerException, IOException {
+		final ByteBuffer pack;
+		try (FileChannel fileChannel = FileChannel.open(packFile, StandardOpenOption.READ)) {
+			pack = fileChannel.map(MapMode.READ_ONLY, 0, fileChannel.size());
+		}
+
+		if (pack.remaining() < HEADER_SIZE || pack.getInt() != MAGIC || pack.getInt() != VERSION) throw new IOException("invalid pack file: " + packFile);
+		final int entryCount = pack.getInt();
+		final int indexLength = pack.getInt();
+		if (indexLength < 0 || indexLength > pack.capacity() - HEADER_SIZE) throw new IOException("invalid pack file: " + packFile);
+		final byte[] index = new byte[indexLength];
+		pack.get(pack.capacity() - indexLength, index);
+
+		this.packFile = packFile;
+		this.blobs = pack.slice(HEADER_SIZE, pack.capacity() - HEADER_SIZE - indexLength);
+		this.entries = new HashMap<>();
+		try (DataInputStream indexReader = new DataInputStream(new ByteArrayInputStream(index))) {
+			for (int entryIndex = 0; entryIndex < entryCount; ++entryIndex) {
+				final String resourcePath = indexReader.readUTF();
+				final String type = indexReader.readUTF();
+				final Map<String,Variant> variants = new HashMap<>();
+				for (final String encoding : ENCODINGS) {
+					final long offset = indexReader.readLong();
+					final int length = indexReader.readInt();
+					final String etag = indexReader.readUTF();
+					if (offset == -1L) continue;
+					if (offset + length > this.blobs.capacity()) throw new IOException("invalid pack file: " + packFile);
+
+					variants.put(encoding, new Variant(this.blobs.slice((int) offset, length).asReadOnlyBuffer(), etag));
+				}
+
+				this.entries.put(resourcePath, new Entry(type, variants));
+			}
+		}
+	}
+
+
+	/**
+	 * Returns the pack file.
+	 * @return the pack file
+	 */
+	public Path getPackFile () {
+		return this.packFile;
+	}
+
+
+	/**
+	 * Returns the entries.
+	 * @return the entries, mapped by resource path
+	 */
+	public Map<String,Entry> getEntries () {
+		return Collections.unmodifiableMap(this.entries);
+	}
+
+
+	/**
+	 * Returns the blob size.
+	 * @return the total size of all blobs in bytes
+	 */
+	public long getBlobSize () {
+		return this.blobs.capacity();
+	}
+
+
+	/**
+	 * Returns the entry for the given resource path.
+	 * @param resourcePath the resource path, relative to the packed resource directory and using "/" as separator
+	 * @return the entry, or {@code null} for none
+	 * @throws NullPointerException if the given argument is null
+	 */
+	public Entry entry (final String resourcePath) throws NullPointerException {
+		return this.entries.get(resourcePath);
+	}
+
+
+	/**
+	 * Resource pack entry type.
+	 */
+	static public final class Entry {
+		private final String type;
+		private final Map<String,Variant> variants;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param type the resource content type
+		 * @param variants the resource variants, mapped by content encoding with {@code null} for identity
+		 */
+		Entry (final String type, final Map<String,Variant> variants) {
+			this.type = type;
+			this.variants = variants;
+		}
+
+
+		/**
+		 * Returns the content type.
+		 * @return the resource content type
+		 */
+		public String type () {
+			return this.type;
+		}
+
+
+		/**
+		 * Returns the variant for the given content encoding.
+		 * @param encoding the content encoding, or {@code null} for identity
+		 * @return the variant, or {@code null} for none
+		 */
+		public Variant variant (final String encoding) {
+			return this.variants.get(encoding);
+		}
+	}
+
+
+
+	/**
+	 * Resource pack entry variant type.
+	 */
+	static public final class Variant {
+		private final ByteBuffer content;
+		private final String etag;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param content the read-only variant content
+		 * @param etag the strong variant entity tag
+		 */
+		Variant (final ByteBuffer content, final String etag) {
+			this.content = content;
+			this.etag = etag;
+		}
+
+
+		/**
+		 * Returns the content. Note that the buffer returned is a read-only slice of the mapped pack file,
+		 * and shall be duplicated before it's position or limit is modified.
+		 * @return the variant content
+		 */
+		public ByteBuffer content () {
+			return this.content;
+		}
+
+
+		/**
+		 * Returns the strong entity tag, including it's quotes.
+		 * @return the entity tag
+		 */
+		public String etag () {
+			return this.etag;
+		}
+	}
+}
\ No newline at end of file
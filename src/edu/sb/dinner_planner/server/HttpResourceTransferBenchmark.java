@@ -0,0 +1,303 @@
+package edu.sb.dinner_planner.server;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+import edu.sb.tool.Copyright;
+
+
+/**
+ * <p>Benchmark comparing the two ways of sending external files used by {@link HttpResourceHandler}: the former
+ * stream based transfer ({@link InputStream#transferTo(OutputStream)} of a file input stream), and the current
+ * memory-mapped transfer ({@link HttpResourceHandler#transferMapped(FileChannel, long, long, OutputStream)}).
+ * Both transfers write into a loopback socket through a channel output stream, which mirrors the copy the JDK
+ * HTTP server performs from it's response stream into the socket; the socket is drained by a separate thread,
+ * which is excluded from the measurement.</p>
+ * <p>For each variant, the benchmark reports the CPU time of the transferring thread and the elapsed time per
+ * GB transferred, and the number of read calls and write calls per MiB transferred; the stream based transfer
+ * copies every byte from the file into a heap buffer using read calls, while the memory-mapped transfer copies it
+ * from the page cache into a heap chunk without any read calls, so both variants copy each byte once in user space
+ * before the socket write. The file is written once and read once before measuring, so it's content resides within
+ * the page cache for all measured runs:</p>
+ * <pre>java [class path] edu.sb.dinner_planner.server.HttpResourceTransferBenchmark 256 16 3</pre>
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class HttpResourceTransferBenchmark {
+	static private final double BYTES_PER_GB = 1024.0 * 1024 * 1024;
+	static private final double BYTES_PER_MIB = 1024.0 * 1024;
+	static private final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+
+	/**
+	 * Prevents external instantiation.
+	 */
+	private HttpResourceTransferBenchmark () {}
+
+
+	/**
+	 * Application entry point. The given arguments are expected to be the file size in MiB (default is 256),
+	 * the number of transfers per measured run (default is 16), and the number of measured runs per variant
+	 * (default is 3).
+	 * @param args the runtime arguments
+	 * @throws IllegalArgumentException if the given arguments are illegal
+	 * @throws IOException if there is an I/O related problem
+	 * @throws InterruptedException if the thread is interrupted while waiting
+	 */
+	static public void main (final String[] args) throws IllegalArgumentException, IOException, InterruptedException {
+		final long fileSize = (args.length > 0 ? Long.parseLong(args[0].trim()) : 256L) * 1024 * 1024;
+		final int transferCount = args.length > 1 ? Integer.parseInt(args[1].trim()) : 16;
+		final int runCount = args.length > 2 ? Integer.parseInt(args[2].trim()) : 3;
+		if (fileSize <= 0 || transferCount <= 0 || runCount <= 0) throw new IllegalArgumentException();
+
+		final ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
+		if (!threadBean.isCurrentThreadCpuTimeSupported()) throw new IllegalStateException("thread CPU time measurement not supported");
+		threadBean.setThreadCpuTimeEnabled(true);
+
+		final Path file = Files.createTempFile("transfer-benchmark-", ".bin");
+		try {
+			writeFile(file, fileSize);
+
+			try (ServerSocketChannel acceptor = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0))) {
+				try (SocketChannel socket = SocketChannel.open(acceptor.getLocalAddress())) {
+					final SocketChannel peer = acceptor.accept();
+					final Thread drainer = Thread.ofPlatform().name("transfer-benchmark-drainer").daemon(true).start(() -> drain(peer));
+
+					final CountingOutputStream byteSink = new CountingOutputStream(Channels.newOutputStream(socket));
+					transferStreamed(file, byteSink);
+					transferMapped(file, byteSink);
+
+					System.out.format("File size: %d MiB, transfers per run: %d, runs per variant: %d%n", fileSize >> 20, transferCount, runCount);
+					for (int run = 1; run <= runCount; ++run) {
+						measure("streamed", run, fileSize, transferCount, threadBean, byteSink, () -> transferStreamed(file, byteSink));
+						measure("mapped", run, fileSize, transferCount, threadBean, byteSink, () -> transferMapped(file, byteSink));
+					}
+
+					socket.shutdownOutput();
+					drainer.join();
+				}
+			}
+		} finally {
+			Files.deleteIfExists(file);
+		}
+	}
+
+
+	/**
+	 * Performs a measured run of the given transfer, and prints the results.
+	 * @param variant the transfer variant name
+	 * @param run the run number
+	 * @param fileSize the file size
+	 * @param transferCount the number of transfers
+	 * @param threadBean the thread MX bean
+	 * @param byteSink the counting byte sink
+	 * @param transfer the transfer, which returns the number of read calls performed
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void measure (final String variant, final int run, final long fileSize, final int transferCount, final ThreadMXBean threadBean, final CountingOutputStream byteSink, final Transfer transfer) throws NullPointerException, IOException {
+		final long writeCalls = byteSink.writeCalls();
+		final long cpuTime = threadBean.getCurrentThreadCpuTime();
+		final long timestamp = System.nanoTime();
+
+		long readCalls = 0;
+		for (int index = 0; index < transferCount; ++index)
+			readCalls += transfer.perform();
+
+		final double elapsedSeconds = (System.nanoTime() - timestamp) / NANOS_PER_SECOND;
+		final double cpuSeconds = (threadBean.getCurrentThreadCpuTime() - cpuTime) / NANOS_PER_SECOND;
+		final double gigabytes = fileSize * transferCount / BYTES_PER_GB;
+		final double mebibytes = fileSize * transferCount / BYTES_PER_MIB;
+		System.out.format("%-8s run %d: CPU %.3f s/GB, elapsed %.3f s/GB, read calls %.1f/MiB, write calls %.1f/MiB%n", variant, run, cpuSeconds / gigabytes, elapsedSeconds / gigabytes, readCalls / mebibytes, (byteSink.writeCalls() - writeCalls) / mebibytes);
+	}
+
+
+	/**
+	 * Transfers the given file to the given byte sink using a file input stream, like
+	 * {@link HttpResourceHandler} did before switching to memory-mapped transfers.
+	 * @param file the file
+	 * @param byteSink the byte sink
+	 * @return the number of read calls performed
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private long transferStreamed (final Path file, final OutputStream byteSink) throws NullPointerException, IOException {
+		try (CountingInputStream byteSource = new CountingInputStream(Files.newInputStream(file))) {
+			byteSource.transferTo(byteSink);
+			return byteSource.readCalls();
+		}
+	}
+
+
+	/**
+	 * Transfers the given file to the given byte sink using memory-mapped windows, like {@link HttpResourceHandler} does.
+	 * @param file the file
+	 * @param byteSink the byte sink
+	 * @return the number of read calls performed, which is always zero
+	 * @throws NullPointerException if any of the given arguments is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private long transferMapped (final Path file, final OutputStream byteSink) throws NullPointerException, IOException {
+		try (FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.READ)) {
+			HttpResourceHandler.transferMapped(fileChannel, 0, fileChannel.size(), byteSink);
+			return 0;
+		}
+	}
+
+
+	/**
+	 * Writes the given number of random bytes into the given file.
+	 * @param file the file
+	 * @param fileSize the file size
+	 * @throws NullPointerException if the given file is null
+	 * @throws IOException if there is an I/O related problem
+	 */
+	static private void writeFile (final Path file, final long fileSize) throws NullPointerException, IOException {
+		final byte[] chunk = new byte[1024 * 1024];
+		ThreadLocalRandom.current().nextBytes(chunk);
+
+		try (OutputStream byteSink = Files.newOutputStream(file)) {
+			for (long remaining = fileSize; remaining > 0; remaining -= chunk.length)
+				byteSink.write(chunk, 0, (int) Math.min(remaining, chunk.length));
+		}
+	}
+
+
+	/**
+	 * Reads and discards all bytes from the given socket until it's peer shuts down it's output.
+	 * @param socket the socket, which is closed afterwards
+	 * @throws NullPointerException if the given socket is null
+	 */
+	static private void drain (final SocketChannel socket) throws NullPointerException {
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(1024 * 1024);
+		try (socket) {
+			while (socket.read(buffer.clear()) != -1);
+		} catch (final IOException exception) {
+			exception.printStackTrace(System.err);
+		}
+	}
+
+
+
+	/**
+	 * Transfer of the benchmark file.
+	 */
+	@FunctionalInterface
+	static private interface Transfer {
+
+		/**
+		 * Performs the transfer.
+		 * @return the number of read calls performed
+		 * @throws IOException if there is an I/O related problem
+		 */
+		long perform () throws IOException;
+	}
+
+
+
+	/**
+	 * Input stream counting it's read calls.
+	 */
+	static private class CountingInputStream extends FilterInputStream {
+		private long readCalls;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param byteSource the byte source
+		 */
+		public CountingInputStream (final InputStream byteSource) {
+			super(byteSource);
+		}
+
+
+		/**
+		 * Returns the number of read calls.
+		 * @return the read call count
+		 */
+		public long readCalls () {
+			return this.readCalls;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read () throws IOException {
+			this.readCalls += 1;
+			return super.read();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public int read (final byte[] buffer, final int offset, final int length) throws IOException {
+			this.readCalls += 1;
+			return this.in.read(buffer, offset, length);
+		}
+	}
+
+
+
+	/**
+	 * Output stream counting it's write calls.
+	 */
+	static private class CountingOutputStream extends FilterOutputStream {
+		private long writeCalls;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param byteSink the byte sink
+		 */
+		public CountingOutputStream (final OutputStream byteSink) {
+			super(byteSink);
+		}
+
+
+		/**
+		 * Returns the number of write calls.
+		 * @return the write call count
+		 */
+		public long writeCalls () {
+			return this.writeCalls;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write (final int value) throws IOException {
+			this.writeCalls += 1;
+			this.out.write(value);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@Override
+		public void write (final byte[] buffer, final int offset, final int length) throws IOException {
+			this.writeCalls += 1;
+			this.out.write(buffer, offset, length);
+		}
+	}
+}
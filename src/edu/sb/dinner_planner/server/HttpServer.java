@@ -11,6 +11,7 @@ import java.nio.file.NotDirectoryException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.security.GeneralSecurityException;
+import java.util.concurrent.ExecutorService;
 import javax.net.ssl.SSLContext;
 import edu.sb.tool.Copyright;
 import edu.sb.tool.ZipPaths;
@@ -39,9 +40,10 @@ public final class HttpServer {
 	 * consisting of either a hostname:port combination or solely the port (default is 8001), an optional
 	 * external resource directory path (default is the VM temporary directory), an optional key-store
 	 * file path for HTTPS (default is {@code null} for HTTP), a key store password (default is"changeit"),
-	 * and an optional key store device password (default is {@code null}).
+	 * an optional key store device password (default is {@code null}), and an optional execution mode for
+	 * HTTP exchanges, being either "virtual" or "platform[:pool-size]" (default is "virtual").
 	 * @param args the runtime arguments
-	 * @throws IllegalArgumentException if the given port is not a valid port number
+	 * @throws IllegalArgumentException if the given port is not a valid port number, or if the given execution mode is illegal
 	 * @throws NotDirectoryException if the given external resource directory path is not a directory
 	 * @throws NoSuchFileException if the given key store file path is neither {@code null} nor representing a regular file
 	 * @throws IOException if there is an I/O related problem
@@ -58,6 +60,7 @@ public final class HttpServer {
 		final Path keyStorePath = args.length > 2 && !args[2].isBlank() ? Paths.get(args[2].trim()).toAbsolutePath() : null;
 		final String keyStorePassword = args.length > 3 && !args[3].isBlank() ? args[3].trim() : DEFAULT_KEY_STORE_PASSWORD;
 		final String keyStoreDevicePassword = args.length > 4 && !args[4].isBlank() ? args[4].trim() : null;
+		final String executionMode = args.length > 5 && !args[5].isBlank() ? args[5].trim() : null;
 
 		// if (!TcpServers.localHostnames().anyMatch(hostname -> hostname.startsWith(serviceHostname))) throw new IllegalArgumentException("configured service host name is illegal: " + serviceHostname);
 		if (servicePort < 1 || servicePort > 65535) throw new IllegalArgumentException("configured service port is illegal: " + servicePort);
@@ -73,9 +76,12 @@ public final class HttpServer {
 		if (tlsContext != null) tlsContext.createSSLEngine(serviceURI.getHost(), serviceURI.getPort());
 
 		// Create and start HTTP/HTTPS server
+		final ExecutorService httpExecutor = TcpServers.newHttpExecutor(executionMode);
 		final com.sun.net.httpserver.HttpServer httpServer = TcpServers.newHttpServer(serviceAddress, tlsContext);
+		httpServer.setExecutor(httpExecutor);
 		final HttpResourceHandler internalFileHandler = internalResourceDirectory == null ? null : new HttpResourceHandler(externalResourceDirectory == null ? "/" : "/internal", internalResourceDirectory);
 		final HttpResourceHandler externalFileHandler = externalResourceDirectory == null ? null : new HttpResourceHandler(internalResourceDirectory == null ? "/" : "/external", externalResourceDirectory);
+		if (internalFileHandler != null) internalFileHandler.packResourcesTemporarily("internal-resources-");
 		if (internalFileHandler != null)
 			httpServer.createContext(internalFileHandler.getContextPath(), internalFileHandler);
 		if (externalFileHandler != null)
@@ -84,6 +90,7 @@ public final class HttpServer {
 
 		try {
 			System.out.format("Web server running on origin \"%s\".%n", serviceURI);
+			System.out.format("HTTP exchanges are processed in \"%s\" execution mode.%n", executionMode == null ? "virtual" : executionMode);
 			if (internalFileHandler != null)
 				System.out.format("Context path \"%s\" is configured for class loader access within \"%s\".%n", internalFileHandler.getContextPath(), internalFileHandler.getResourceDirectory());
 			if (externalFileHandler != null)
@@ -94,6 +101,7 @@ public final class HttpServer {
 			while (!"quit".equals(charSource.readLine()));
 		} finally {
 			httpServer.stop(0);
+			httpExecutor.shutdown();
 		}
 	}
 }
\ No newline at end of file
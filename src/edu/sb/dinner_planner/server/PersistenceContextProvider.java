@@ -1,27 +1,48 @@
 package edu.sb.dinner_planner.server;
 
-import java.lang.reflect.InvocationHandler;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Method;
-import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.glassfish.hk2.api.Injectee;
 import org.glassfish.hk2.api.InjectionResolver;
-import org.glassfish.hk2.api.PreDestroy;
 import org.glassfish.hk2.api.ServiceHandle;
 import org.glassfish.hk2.api.TypeLiteral;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
-import org.glassfish.jersey.process.internal.RequestScoped;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.model.ResourceMethod;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
 import edu.sb.tool.Copyright;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import jakarta.persistence.EntityGraph;
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.EntityTransaction;
+import jakarta.persistence.FlushModeType;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.Persistence;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.PersistenceException;
+import jakarta.persistence.Query;
+import jakarta.persistence.StoredProcedureQuery;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.metamodel.Metamodel;
+import jakarta.validation.Validation;
+import jakarta.validation.ValidatorFactory;
+import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.ext.Provider;
 
 
@@ -29,11 +50,129 @@ import jakarta.ws.rs.ext.Provider;
  * HK2 based binder providing {@link PersistenceContext} annotation based
  * dependency injection for {@code JPA} {@link EntityManager} instances
  * for configured components of Java SE based {@code JAX-RS} servers.
+ * All service methods answering safe HTTP methods are given read-only
+ * entity managers if
+ * {@code edu.sb.dinner_planner.server.PersistenceContextProvider.READ_ONLY_SAFE_METHODS=true}
+ * is added to the component configuration; such services must therefore not
+ * modify entities when answering {@code GET}, {@code HEAD} or {@code OPTIONS}
+ * requests. The mode is resolved from the HTTP method of the matched resource
+ * method; entity managers used before resource matching, for example by pre-matching
+ * filters, are always read-write, served by the primary unit, and kept apart from
+ * the entity managers used once a resource method has been matched. Note that
+ * there is no per-method opt-in annotation, as the REST services reside within
+ * the model module, which cannot depend on this module.
+ * <p>Persistence units may additionally be backed by read replicas, which are separate persistence
+ * units connecting to replica databases, by adding for example
+ * {@code edu.sb.dinner_planner.server.PersistenceContextProvider.PERSISTENCE_UNIT_REPLICAS=local_database=local_replica_1,local_replica_2}
+ * to the component configuration; multiple unit definitions are separated by semicolons. Read-only
+ * requests are then balanced round-robin over the replica units, while all other requests, and
+ * read-only requests carrying a {@code X-Read-Your-Writes} header, are served by the primary unit.
+ * As writes are performed using the primary unit only, and are therefore never propagated to the
+ * shared caches of the replica units, the latter are created with their shared (L2) cache disabled;
+ * replica reads are therefore only stale for the duration of the replication lag, at the cost of
+ * querying the replica database for every read. For testing, two local database instances with
+ * their own persistence units suffice.</p>
  */
 @Provider
 @Copyright(year=2025, holders={"Felix Dietrich", "Sascha Baumeister"})
 public class PersistenceContextProvider extends AbstractBinder {
 	static private final Map<String,EntityManagerFactory> ENTITY_MANAGER_FACTORY_CACHE = new ConcurrentHashMap<>();
+	static private final Set<String> SAFE_METHODS = Set.of(HttpMethod.GET, HttpMethod.HEAD, HttpMethod.OPTIONS);
+	static private final String READ_ONLY_HINT = "eclipselink.read-only";
+	static private final String VALIDATION_FACTORY_PROPERTY = "jakarta.persistence.validation.factory";
+	static private final String SHARED_CACHE_PROPERTY = "eclipselink.cache.shared.default";
+	static final ValidatorFactory VALIDATOR_FACTORY = Validation.buildDefaultValidatorFactory();
+	static private final String READ_YOUR_WRITES_HEADER = "X-Read-Your-Writes";
+	static private final String PROPERTY_ENTITY_MANAGER_MAP = PersistenceContextProvider.class.getName() + ".entity-managers";
+	static private final String READ_ONLY_KEY_SUFFIX = "@read-only";
+	static private final AtomicInteger REPLICA_CURSOR = new AtomicInteger();
+	static private String READ_ONLY_SAFE_METHODS = "false";
+	static private String PERSISTENCE_UNIT_REPLICAS = "";
+	static private volatile Map<String,String[]> REPLICA_UNIT_NAMES = null;
+
+
+	/**
+	 * Returns the entity manager factory for the given persistence unit, creating it if necessary.
+	 * All factories share the same validator factory for entity life cycle validation, which allows
+	 * bean validation to be warmed up, see {@link ContainerWarmUp}; factories of replica units are
+	 * created with their shared cache disabled, while the shared caches of all other units are
+	 * published for administration via {@link SecondLevelCacheControl}.
+	 * @param persistenceUnitName the persistence unit name
+	 * @return the entity manager factory
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the replica configuration is malformed
+	 * @throws PersistenceException if the entity manager factory cannot be created
+	 */
+	static EntityManagerFactory entityManagerFactory (final String persistenceUnitName) throws NullPointerException, IllegalArgumentException, PersistenceException {
+		final EntityManagerFactory entityManagerFactory = ENTITY_MANAGER_FACTORY_CACHE.get(persistenceUnitName);
+		if (entityManagerFactory != null) return entityManagerFactory;
+
+		final boolean replica = replicaUnitNames().values().stream().flatMap(Arrays::stream).anyMatch(persistenceUnitName::equals);
+		return ENTITY_MANAGER_FACTORY_CACHE.computeIfAbsent(persistenceUnitName, key -> {
+			final Map<String,Object> properties = new HashMap<>();
+			properties.put(VALIDATION_FACTORY_PROPERTY, VALIDATOR_FACTORY);
+			if (replica) properties.put(SHARED_CACHE_PROPERTY, "false");
+			final EntityManagerFactory result = Persistence.createEntityManagerFactory(key, properties);
+			if (!replica) SecondLevelCacheControl.register(key, result);
+			return result;
+		});
+	}
+
+
+	/**
+	 * Returns the names of all persistence units serving requests for the given persistence unit.
+	 * @param persistenceUnitName the (primary) persistence unit name
+	 * @return the given persistence unit name, followed by the names of it's replica units
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the replica configuration is malformed
+	 */
+	static List<String> servingUnitNames (final String persistenceUnitName) throws NullPointerException, IllegalArgumentException {
+		final List<String> servingUnitNames = new ArrayList<>();
+		servingUnitNames.add(persistenceUnitName);
+		servingUnitNames.addAll(Arrays.asList(replicaUnitNames().getOrDefault(persistenceUnitName, new String[0])));
+		return servingUnitNames;
+	}
+
+
+	/**
+	 * Returns the name of the persistence unit serving a request for the given persistence unit.
+	 * @param persistenceUnitName the (primary) persistence unit name
+	 * @param replica whether or not the request may be served by a replica unit
+	 * @return the name of one of the given unit's replica units if replicas are allowed and configured,
+	 *         otherwise the given persistence unit name
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the replica configuration is malformed
+	 */
+	static private String servingUnitName (final String persistenceUnitName, final boolean replica) throws NullPointerException, IllegalArgumentException {
+		if (!replica) return persistenceUnitName;
+
+		final String[] replicaUnitNames = replicaUnitNames().get(persistenceUnitName);
+		if (replicaUnitNames == null) return persistenceUnitName;
+		return replicaUnitNames[Math.floorMod(REPLICA_CURSOR.getAndIncrement(), replicaUnitNames.length)];
+	}
+
+
+	/**
+	 * Returns the replica unit names, parsing the replica configuration if necessary.
+	 * @return the replica unit names, mapped by primary persistence unit name
+	 * @throws IllegalArgumentException if the replica configuration is malformed
+	 */
+	static private Map<String,String[]> replicaUnitNames () throws IllegalArgumentException {
+		if (REPLICA_UNIT_NAMES == null) {
+			final Map<String,String[]> replicaUnitNames = new HashMap<>();
+			for (final String definition : PERSISTENCE_UNIT_REPLICAS.split(";")) {
+				if (definition.isBlank()) continue;
+				final int delimiterPosition = definition.indexOf('=');
+				if (delimiterPosition == -1) throw new IllegalArgumentException(PERSISTENCE_UNIT_REPLICAS);
+
+				final String[] replicaNames = Arrays.stream(definition.substring(delimiterPosition + 1).split(",")).map(String::trim).filter(name -> !name.isEmpty()).toArray(String[]::new);
+				if (replicaNames.length > 0) replicaUnitNames.put(definition.substring(0, delimiterPosition).trim(), replicaNames);
+			}
+			REPLICA_UNIT_NAMES = replicaUnitNames;
+		}
+
+		return REPLICA_UNIT_NAMES;
+	}
 
 
 	/**
@@ -43,7 +182,7 @@ public class PersistenceContextProvider extends AbstractBinder {
 	protected void configure () {
 		final TypeLiteral<InjectionResolver<PersistenceContext>> typeLiteral = new TypeLiteral<>() {};
 		this.bind(PersistenceContextInjectionResolver.class).to(typeLiteral).in(Singleton.class);
-		this.bind(EntityManagerMap.class).to(EntityManagerMap.class).in(RequestScoped.class).proxy(true);
+		this.bind(EntityManagerMapDisposer.class).to(ApplicationEventListener.class).in(Singleton.class);
 	}
 
 
@@ -55,8 +194,10 @@ public class PersistenceContextProvider extends AbstractBinder {
 	@Singleton
 	static private class PersistenceContextInjectionResolver implements InjectionResolver<PersistenceContext> {
 
+		private final Map<String,EntityManager> entityManagerDelegates = new ConcurrentHashMap<>();
+
 		@Inject
-		private EntityManagerMap entityManagerCache;
+		private jakarta.inject.Provider<ContainerRequest> requestProvider;
 
 
 		/**
@@ -82,7 +223,8 @@ public class PersistenceContextProvider extends AbstractBinder {
 		/**
 		 * Returns the object that should be injected into the given injection point. This operation does
 		 * not perform the injection itself; however, it is responsible to ensure that the object returned
-		 * can be safely injected into the injection point.
+		 * can be safely injected into the injection point. The entity manager delegate returned is
+		 * shared between all injection points referring to the same persistence unit.
 		 * @param injectee the injection point the returned value is being injected into
 		 * @param rootClassServiceHandle the (optional) service handle of the root class being created,
 		 *        which should be used in order to ensure proper destruction of associated scoped objects
@@ -92,78 +234,871 @@ public class PersistenceContextProvider extends AbstractBinder {
 			if (injectee.getRequiredType() != EntityManager.class | injectee.getParent() == null) return null;
 
 			final PersistenceContext persistenceContextAnnotation = injectee.getParent().getAnnotation(PersistenceContext.class);
-			return Proxy.newProxyInstance(EntityManager.class.getClassLoader(), new Class[] { EntityManager.class }, new EntityManagerInvocationHandler(persistenceContextAnnotation.unitName(), this.entityManagerCache));
+			return this.entityManagerDelegates.computeIfAbsent(persistenceContextAnnotation.unitName(), persistenceUnitName -> new ContainerEntityManager(persistenceUnitName, this.requestProvider));
 		}
 	}
 
 
 
 	/**
-	 * Invocation handler type for {@link EntityManager} proxy instances.
+	 * Abstract entity manager type delegating all method calls to another entity manager,
+	 * without using reflection.
 	 */
-	static private class EntityManagerInvocationHandler implements InvocationHandler {
-		private final String persistenceUnitName;
-		private final Map<String,EntityManager> entityManagerCache;
+	static private abstract class EntityManagerDelegate implements EntityManager {
+
+		/**
+		 * Returns the entity manager method calls are delegated to.
+		 * @return the entity manager
+		 */
+		protected abstract EntityManager entityManager ();
 
 
 		/**
-		 * Initializes a new instance
-		 * @param persistenceUnitName the persistence unit name
-		 * @param entityManagerCache the entity manager cache
-		 * @throws NullPointerException if any of the given arguments is {@code null}
+		 * {@inheritDoc}
 		 */
-		EntityManagerInvocationHandler(final String persistenceUnitName, final Map<String,EntityManager> entityManagerCache) throws NullPointerException {
-			this.persistenceUnitName = Objects.requireNonNull(persistenceUnitName);
-			this.entityManagerCache = Objects.requireNonNull(entityManagerCache);
+		public void close () {
+			this.entityManager().close();
 		}
 
 
 		/**
 		 * {@inheritDoc}
-		 * @throws IllegalStateException if the method to be called is the close() method.
-		 * @throws IllegalAccessException if the given method is enforcing Java language access control and the underlying method is inaccessible
-		 * @throws InvocationTargetException if the underlying method throws an exception
 		 */
-		public Object invoke(final Object proxy, final Method method, final Object[] args) throws IllegalStateException, IllegalAccessException, InvocationTargetException {
-			if (method.getName().equals("close")) throw new IllegalStateException("entity manager is container managed!");
+		public void persist (final Object entity) {
+			this.entityManager().persist(entity);
+		}
 
-			final EntityManager entityManager;
-			synchronized (this.entityManagerCache) {
-				if (!this.entityManagerCache.containsKey(this.persistenceUnitName)) {
-					final EntityManagerFactory entityManagerFactory = ENTITY_MANAGER_FACTORY_CACHE.computeIfAbsent(this.persistenceUnitName, key -> Persistence.createEntityManagerFactory(key));
-					this.entityManagerCache.put(this.persistenceUnitName, entityManagerFactory.createEntityManager());
-				}
 
-				entityManager = this.entityManagerCache.get(this.persistenceUnitName);	
-			}
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T merge (final T entity) {
+			return this.entityManager().merge(entity);
+		}
+
 
-			return method.invoke(entityManager, args);
+		/**
+		 * {@inheritDoc}
+		 */
+		public void remove (final Object entity) {
+			this.entityManager().remove(entity);
 		}
-	}
 
 
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey) {
+			return this.entityManager().find(entityClass, primaryKey);
+		}
 
-	/**
-	 * HK2 based entity manager map type. Instances can work as entity manager caches bound
-	 * to an HTTP request's life cycle; once the HTTP request is done, all entity managers
-	 * contained within are disposed of.
-	 */
-	static class EntityManagerMap extends HashMap<String,EntityManager> implements PreDestroy {
-		private static final long serialVersionUID = 1L;
 
 		/**
-		 * The component is about to be removed from the registry. This implies iterating over
-		 * all entity managers contained within, rolling back active entity manager transactions
-		 * if required, and subsequently closing the entity managers if required. Finally, the
-		 * map is cleared.
+		 * {@inheritDoc}
 		 */
-		public void preDestroy () {
-			for (final EntityManager entityManager : this.values()) {
-				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
-				if (entityManager.isOpen()) entityManager.close();
-			}
+		public <T> T find (final Class<T> entityClass, final Object primaryKey, final Map<String,Object> properties) {
+			return this.entityManager().find(entityClass, primaryKey, properties);
+		}
 
-			this.clear();
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey, final LockModeType lockMode) {
+			return this.entityManager().find(entityClass, primaryKey, lockMode);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey, final LockModeType lockMode, final Map<String,Object> properties) {
+			return this.entityManager().find(entityClass, primaryKey, lockMode, properties);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T getReference (final Class<T> entityClass, final Object primaryKey) {
+			return this.entityManager().getReference(entityClass, primaryKey);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void flush () {
+			this.entityManager().flush();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void setFlushMode (final FlushModeType flushMode) {
+			this.entityManager().setFlushMode(flushMode);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public FlushModeType getFlushMode () {
+			return this.entityManager().getFlushMode();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void lock (final Object entity, final LockModeType lockMode) {
+			this.entityManager().lock(entity, lockMode);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void lock (final Object entity, final LockModeType lockMode, final Map<String,Object> properties) {
+			this.entityManager().lock(entity, lockMode, properties);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void refresh (final Object entity) {
+			this.entityManager().refresh(entity);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void refresh (final Object entity, final Map<String,Object> properties) {
+			this.entityManager().refresh(entity, properties);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void refresh (final Object entity, final LockModeType lockMode) {
+			this.entityManager().refresh(entity, lockMode);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void refresh (final Object entity, final LockModeType lockMode, final Map<String,Object> properties) {
+			this.entityManager().refresh(entity, lockMode, properties);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void clear () {
+			this.entityManager().clear();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void detach (final Object entity) {
+			this.entityManager().detach(entity);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean contains (final Object entity) {
+			return this.entityManager().contains(entity);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public LockModeType getLockMode (final Object entity) {
+			return this.entityManager().getLockMode(entity);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void setProperty (final String propertyName, final Object value) {
+			this.entityManager().setProperty(propertyName, value);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Map<String,Object> getProperties () {
+			return this.entityManager().getProperties();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createQuery (final String qlString) {
+			return this.entityManager().createQuery(qlString);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> TypedQuery<T> createQuery (final CriteriaQuery<T> criteriaQuery) {
+			return this.entityManager().createQuery(criteriaQuery);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public Query createQuery (final CriteriaUpdate updateQuery) {
+			return this.entityManager().createQuery(updateQuery);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public Query createQuery (final CriteriaDelete deleteQuery) {
+			return this.entityManager().createQuery(deleteQuery);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> TypedQuery<T> createQuery (final String qlString, final Class<T> resultClass) {
+			return this.entityManager().createQuery(qlString, resultClass);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createNamedQuery (final String name) {
+			return this.entityManager().createNamedQuery(name);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> TypedQuery<T> createNamedQuery (final String name, final Class<T> resultClass) {
+			return this.entityManager().createNamedQuery(name, resultClass);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createNativeQuery (final String sqlString) {
+			return this.entityManager().createNativeQuery(sqlString);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public Query createNativeQuery (final String sqlString, final Class resultClass) {
+			return this.entityManager().createNativeQuery(sqlString, resultClass);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createNativeQuery (final String sqlString, final String resultSetMapping) {
+			return this.entityManager().createNativeQuery(sqlString, resultSetMapping);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public StoredProcedureQuery createNamedStoredProcedureQuery (final String name) {
+			return this.entityManager().createNamedStoredProcedureQuery(name);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public StoredProcedureQuery createStoredProcedureQuery (final String procedureName) {
+			return this.entityManager().createStoredProcedureQuery(procedureName);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public StoredProcedureQuery createStoredProcedureQuery (final String procedureName, final Class... resultClasses) {
+			return this.entityManager().createStoredProcedureQuery(procedureName, resultClasses);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public StoredProcedureQuery createStoredProcedureQuery (final String procedureName, final String... resultSetMappings) {
+			return this.entityManager().createStoredProcedureQuery(procedureName, resultSetMappings);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public void joinTransaction () {
+			this.entityManager().joinTransaction();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean isJoinedToTransaction () {
+			return this.entityManager().isJoinedToTransaction();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T unwrap (final Class<T> type) {
+			return this.entityManager().unwrap(type);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Object getDelegate () {
+			return this.entityManager().getDelegate();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public boolean isOpen () {
+			return this.entityManager().isOpen();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public EntityTransaction getTransaction () {
+			return this.entityManager().getTransaction();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public EntityManagerFactory getEntityManagerFactory () {
+			return this.entityManager().getEntityManagerFactory();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public CriteriaBuilder getCriteriaBuilder () {
+			return this.entityManager().getCriteriaBuilder();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Metamodel getMetamodel () {
+			return this.entityManager().getMetamodel();
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> EntityGraph<T> createEntityGraph (final Class<T> rootType) {
+			return this.entityManager().createEntityGraph(rootType);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public EntityGraph<?> createEntityGraph (final String graphName) {
+			return this.entityManager().createEntityGraph(graphName);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public EntityGraph<?> getEntityGraph (final String graphName) {
+			return this.entityManager().getEntityGraph(graphName);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> List<EntityGraph<? super T>> getEntityGraphs (final Class<T> entityClass) {
+			return this.entityManager().getEntityGraphs(entityClass);
+		}
+	}
+
+
+
+	/**
+	 * Entity manager type delegating all method calls to the entity manager associated with the
+	 * current HTTP request and a persistence unit. The current request is looked up without any
+	 * proxy, and it's entity manager map is created once per request and kept as a request property;
+	 * the entity manager is then resolved with a single, lock-free map lookup. Instances are stateless
+	 * except for their persistence unit, and therefore shared between all injection points referring
+	 * to the same persistence unit.
+	 */
+	static private class ContainerEntityManager extends EntityManagerDelegate {
+		private final String persistenceUnitName;
+		private final jakarta.inject.Provider<ContainerRequest> requestProvider;
+
+
+		/**
+		 * Initializes a new instance
+		 * @param persistenceUnitName the persistence unit name
+		 * @param requestProvider the provider of the current HTTP request
+		 * @throws NullPointerException if any of the given arguments is {@code null}
+		 */
+		ContainerEntityManager (final String persistenceUnitName, final jakarta.inject.Provider<ContainerRequest> requestProvider) throws NullPointerException {
+			this.persistenceUnitName = Objects.requireNonNull(persistenceUnitName);
+			this.requestProvider = Objects.requireNonNull(requestProvider);
+		}
+
+
+		/**
+		 * Returns the entity manager associated with the current HTTP request and this instance's persistence unit.
+		 * @return the entity manager
+		 */
+		protected EntityManager entityManager () {
+			return EntityManagerMap.of(this.requestProvider.get()).entityManager(this.persistenceUnitName);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is container managed
+		 */
+		public void close () throws IllegalStateException {
+			throw new IllegalStateException("entity manager is container managed!");
+		}
+	}
+
+
+
+	/**
+	 * Read-only entity manager type. Entities are found and queried using the <i>EclipseLink</i>
+	 * read-only query hint, which returns shared cache instances without registering them within
+	 * the persistence context for change tracking, while write operations are rejected. As any
+	 * modification of such instances would corrupt the shared cache, transactions and stored
+	 * procedure queries are rejected as well, and native queries are subject to the read-only hint.
+	 */
+	static private class ReadOnlyEntityManager extends EntityManagerDelegate {
+		private final EntityManager entityManager;
+
+
+		/**
+		 * Initializes a new instance
+		 * @param entityManager the entity manager method calls are delegated to
+		 * @throws NullPointerException if the given argument is {@code null}
+		 */
+		ReadOnlyEntityManager (final EntityManager entityManager) throws NullPointerException {
+			this.entityManager = Objects.requireNonNull(entityManager);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		protected EntityManager entityManager () {
+			return this.entityManager;
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public void persist (final Object entity) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public <T> T merge (final T entity) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public void remove (final Object entity) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public void flush () throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public void joinTransaction () throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public EntityTransaction getTransaction () throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public StoredProcedureQuery createNamedStoredProcedureQuery (final String name) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public StoredProcedureQuery createStoredProcedureQuery (final String procedureName) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		@SuppressWarnings("rawtypes")
+		public StoredProcedureQuery createStoredProcedureQuery (final String procedureName, final Class... resultClasses) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 * @throws IllegalStateException always, because the entity manager is read-only
+		 */
+		public StoredProcedureQuery createStoredProcedureQuery (final String procedureName, final String... resultSetMappings) throws IllegalStateException {
+			throw new IllegalStateException("entity manager is read-only!");
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey) {
+			return this.entityManager.find(entityClass, primaryKey, Map.of(READ_ONLY_HINT, Boolean.TRUE));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey, final Map<String,Object> properties) {
+			final Map<String,Object> readOnlyProperties = new HashMap<>(properties);
+			readOnlyProperties.putIfAbsent(READ_ONLY_HINT, Boolean.TRUE);
+			return this.entityManager.find(entityClass, primaryKey, readOnlyProperties);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey, final LockModeType lockMode) {
+			return this.entityManager.find(entityClass, primaryKey, lockMode, Map.of(READ_ONLY_HINT, Boolean.TRUE));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> T find (final Class<T> entityClass, final Object primaryKey, final LockModeType lockMode, final Map<String,Object> properties) {
+			final Map<String,Object> readOnlyProperties = new HashMap<>(properties);
+			readOnlyProperties.putIfAbsent(READ_ONLY_HINT, Boolean.TRUE);
+			return this.entityManager.find(entityClass, primaryKey, lockMode, readOnlyProperties);
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createQuery (final String qlString) {
+			return readOnly(this.entityManager.createQuery(qlString));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> TypedQuery<T> createQuery (final CriteriaQuery<T> criteriaQuery) {
+			return readOnly(this.entityManager.createQuery(criteriaQuery));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> TypedQuery<T> createQuery (final String qlString, final Class<T> resultClass) {
+			return readOnly(this.entityManager.createQuery(qlString, resultClass));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createNamedQuery (final String name) {
+			return readOnly(this.entityManager.createNamedQuery(name));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public <T> TypedQuery<T> createNamedQuery (final String name, final Class<T> resultClass) {
+			return readOnly(this.entityManager.createNamedQuery(name, resultClass));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createNativeQuery (final String sqlString) {
+			return readOnly(this.entityManager.createNativeQuery(sqlString));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		@SuppressWarnings("rawtypes")
+		public Query createNativeQuery (final String sqlString, final Class resultClass) {
+			return readOnly(this.entityManager.createNativeQuery(sqlString, resultClass));
+		}
+
+
+		/**
+		 * {@inheritDoc}
+		 */
+		public Query createNativeQuery (final String sqlString, final String resultSetMapping) {
+			return readOnly(this.entityManager.createNativeQuery(sqlString, resultSetMapping));
+		}
+
+
+		/**
+		 * Applies the read-only query hint to the given query, unless it isn't an object level read query.
+		 * Note that such queries are left unchanged, because they fail for lack of a transaction anyway
+		 * if they are write queries, as read-only entity managers do not provide transactions.
+		 * @param <Q> the query type
+		 * @param query the query
+		 * @return the given query
+		 * @throws NullPointerException if the given argument is {@code null}
+		 */
+		static private <Q extends Query> Q readOnly (final Q query) throws NullPointerException {
+			try {
+				query.setHint(READ_ONLY_HINT, Boolean.TRUE);
+			} catch (final IllegalArgumentException exception) {
+				// do nothing
+			}
+
+			return query;
+		}
+	}
+
+
+
+	/**
+	 * Entity manager map type. Instances work as entity manager caches bound to an HTTP
+	 * request's life cycle, and are stored as a property of their HTTP request; once the
+	 * HTTP request is finished, all entity managers contained within are disposed of,
+	 * see {@link EntityManagerMapDisposer}.
+	 */
+	static class EntityManagerMap extends ConcurrentHashMap<String,EntityManager> {
+		private static final long serialVersionUID = 1L;
+
+		private final transient ContainerRequest request;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param request the HTTP request
+		 * @throws NullPointerException if the given argument is {@code null}
+		 */
+		private EntityManagerMap (final ContainerRequest request) throws NullPointerException {
+			this.request = Objects.requireNonNull(request);
+		}
+
+
+		/**
+		 * Returns the entity manager map of the given HTTP request, creating it if necessary.
+		 * @param request the HTTP request
+		 * @return the entity manager map
+		 * @throws NullPointerException if the given argument is {@code null}
+		 */
+		static EntityManagerMap of (final ContainerRequest request) throws NullPointerException {
+			final EntityManagerMap entityManagerMap = (EntityManagerMap) request.getProperty(PROPERTY_ENTITY_MANAGER_MAP);
+			if (entityManagerMap != null) return entityManagerMap;
+
+			synchronized (request) {
+				EntityManagerMap newEntityManagerMap = (EntityManagerMap) request.getProperty(PROPERTY_ENTITY_MANAGER_MAP);
+				if (newEntityManagerMap == null) {
+					newEntityManagerMap = new EntityManagerMap(request);
+					request.setProperty(PROPERTY_ENTITY_MANAGER_MAP, newEntityManagerMap);
+				}
+				return newEntityManagerMap;
+			}
+		}
+
+
+		/**
+		 * Returns the entity manager associated with the given persistence unit and the request's current
+		 * mode, creating it if necessary. Note that the fast path consists of a single lock-free lookup.
+		 * Read-only entity managers are kept under a separate key, use commit flush mode, and are wrapped
+		 * to become read-only; they are created by one of the unit's replica units if available, unless
+		 * the request demands to read it's writes.
+		 * @param persistenceUnitName the persistence unit name
+		 * @return the entity manager
+		 * @throws NullPointerException if the given argument is {@code null}
+		 */
+		public EntityManager entityManager (final String persistenceUnitName) throws NullPointerException {
+			final boolean readOnly = isReadOnly(this.request);
+			final String key = readOnly ? persistenceUnitName + READ_ONLY_KEY_SUFFIX : persistenceUnitName;
+			final EntityManager entityManager = this.get(key);
+			if (entityManager != null) return entityManager;
+
+			return this.computeIfAbsent(key, ignore -> {
+				final ContainerRequest request = this.request;
+				final String servingUnitName = servingUnitName(persistenceUnitName, readOnly && request.getHeaderString(READ_YOUR_WRITES_HEADER) == null);
+				final EntityManager newEntityManager = entityManagerFactory(servingUnitName).createEntityManager();
+				if (!readOnly) return newEntityManager;
+
+				newEntityManager.setFlushMode(FlushModeType.COMMIT);
+				return new ReadOnlyEntityManager(newEntityManager);
+			});
+		}
+
+
+		/**
+		 * Returns whether or not the given HTTP request shall currently use read-only entity managers. This
+		 * is the case if read-only mode is enabled for safe HTTP methods, and a resource method answering a
+		 * safe HTTP method has been matched; before resource matching, the request is never read-only, as
+		 * pre-matching filters may still change it's HTTP method.
+		 * @param request the HTTP request
+		 * @return whether or not the HTTP request is read-only
+		 * @throws NullPointerException if the given argument is {@code null}
+		 */
+		static private boolean isReadOnly (final ContainerRequest request) throws NullPointerException {
+			if (!Boolean.parseBoolean(READ_ONLY_SAFE_METHODS)) return false;
+
+			final ResourceMethod resourceMethod = request.getUriInfo().getMatchedResourceMethod();
+			return resourceMethod != null && SAFE_METHODS.contains(resourceMethod.getHttpMethod());
+		}
+
+
+		/**
+		 * Disposes of this map once it's HTTP request is finished. This implies iterating over
+		 * all entity managers contained within, rolling back active entity manager transactions
+		 * if required, and subsequently closing the entity managers if required. Finally, the
+		 * map is cleared.
+		 */
+		public void dispose () {
+			for (final EntityManager value : this.values()) {
+				final EntityManager entityManager = value instanceof ReadOnlyEntityManager readOnlyEntityManager ? readOnlyEntityManager.entityManager() : value;
+				if (entityManager.getTransaction().isActive()) entityManager.getTransaction().rollback();
+				if (entityManager.isOpen()) entityManager.close();
+			}
+
+			this.clear();
+		}
+	}
+
+
+
+	/**
+	 * Jersey event listener type disposing of the entity manager map of every HTTP request
+	 * once the request is finished, regardless of how it has been finished.
+	 */
+	@Singleton
+	static private class EntityManagerMapDisposer implements ApplicationEventListener, RequestEventListener {
+
+		/**
+		 * Does nothing, as application events are not relevant for entity manager disposal.
+		 * @param event the application event
+		 */
+		public void onEvent (final ApplicationEvent event) {}
+
+
+		/**
+		 * Returns this instance as listener for the events of the given request.
+		 * @param event the request start event
+		 * @return the request event listener
+		 */
+		public RequestEventListener onRequest (final RequestEvent event) {
+			return this;
+		}
+
+
+		/**
+		 * Disposes of the entity manager map of the request associated with the given event
+		 * once the request is finished.
+		 * @param event the request event
+		 */
+		public void onEvent (final RequestEvent event) {
+			if (event.getType() != RequestEvent.Type.FINISHED) return;
+
+			final EntityManagerMap entityManagerMap = (EntityManagerMap) event.getContainerRequest().getProperty(PROPERTY_ENTITY_MANAGER_MAP);
+			if (entityManagerMap == null) return;
+
+			event.getContainerRequest().removeProperty(PROPERTY_ENTITY_MANAGER_MAP);
+			entityManagerMap.dispose();
 		}
 	}
-}
+}
\ No newline at end of file
@@ -0,0 +1,31 @@
+package edu.sb.dinner_planner.server;
+
+import edu.sb.tool.Copyright;
+
+
+/**
+ * JMX interface publishing the state of a {@link RestConcurrencyLimitProvider}.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public interface RestConcurrencyLimitMXBean {
+
+	/**
+	 * Returns the current concurrency limit.
+	 * @return the number of requests allowed to be in flight concurrently
+	 */
+	int getLimit ();
+
+
+	/**
+	 * Returns the in-flight count.
+	 * @return the number of requests currently in flight
+	 */
+	int getInFlight ();
+
+
+	/**
+	 * Returns the rejected count.
+	 * @return the number of requests rejected since startup
+	 */
+	long getRejectedCount ();
+}
\ No newline at end of file
@@ -0,0 +1,238 @@
+package edu.sb.dinner_planner.server;
+
+import static jakarta.ws.rs.core.Response.Status.SERVICE_UNAVAILABLE;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.glassfish.jersey.server.monitoring.ApplicationEvent;
+import org.glassfish.jersey.server.monitoring.ApplicationEventListener;
+import org.glassfish.jersey.server.monitoring.RequestEvent;
+import org.glassfish.jersey.server.monitoring.RequestEventListener;
+import edu.sb.tool.Copyright;
+import jakarta.annotation.Priority;
+import jakarta.ws.rs.Priorities;
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+
+/**
+ * JAX-RS filter provider performing admission control for REST service requests. The number of requests
+ * allowed to be in flight concurrently is adjusted automatically based on observed request latency, using
+ * a gradient algorithm: as long as the short-term latency stays close to the long-term latency, the limit
+ * grows; once the short-term latency rises, the limit shrinks proportionally. Requests exceeding the current
+ * limit are rejected immediately with HTTP 503 Service Unavailable and a "Retry-After" header, instead of
+ * queuing until they time out. Admissions are released once Jersey has finished processing a request, regardless
+ * of whether a response has been written or an unmapped exception has escaped, as response filters are skipped
+ * in the latter case. CORS preflight requests are exempt from admission control, as they are answered cheaply
+ * by {@link RestCorsHeaderProvider} before resource matching, and rejecting them would fail the browser's actual
+ * request even if capacity is available by then. The current limit, the in-flight count and the rejected count are published
+ * as the JMX bean {@code edu.sb.dinner_planner.server:type=RestConcurrencyLimitProvider}.
+ */
+@Provider
+@PreMatching
+@Priority(Priorities.AUTHENTICATION - 100)
+@Copyright(year=2025, holders="Sascha Baumeister")
+public class RestConcurrencyLimitProvider implements ContainerRequestFilter, ApplicationEventListener, RestConcurrencyLimitMXBean {
+	static private final String OBJECT_NAME = "edu.sb.dinner_planner.server:type=RestConcurrencyLimitProvider";
+	static private final String PROPERTY_ADMISSION = RestConcurrencyLimitProvider.class.getName() + ".admission";
+	static private final int DEFAULT_INITIAL_LIMIT = 20, DEFAULT_MIN_LIMIT = 4, DEFAULT_MAX_LIMIT = 500, DEFAULT_RETRY_AFTER = 1;
+	static private final double SHORT_RTT_SMOOTHING = 0.1, LONG_RTT_SMOOTHING = 0.01, LIMIT_SMOOTHING = 0.2;
+	static private final double MIN_GRADIENT = 0.5, MAX_GRADIENT = 1.0, DRIFT_RATIO = 2.0, DRIFT_DECAY = 0.95;
+
+	private final int minLimit;
+	private final int maxLimit;
+	private final int retryAfter;
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final LongAdder rejectedCount = new LongAdder();
+	private final RequestEventListener requestEventListener = RestConcurrencyLimitProvider::release;
+	private volatile double limit;
+	private double shortRtt;
+	private double longRtt;
+
+
+	/**
+	 * Initializes a new instance using the default limits.
+	 */
+	public RestConcurrencyLimitProvider () {
+		this(DEFAULT_INITIAL_LIMIT, DEFAULT_MIN_LIMIT, DEFAULT_MAX_LIMIT, DEFAULT_RETRY_AFTER);
+	}
+
+
+	/**
+	 * Initializes a new instance from the given configuration, which is expected to consist of
+	 * a comma separated initial limit, minimum limit, maximum limit and retry-after seconds,
+	 * as in {@code "20,4,500,1"}; trailing elements may be omitted.
+	 * @param configuration the configuration
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given argument is malformed, or if the limits are inconsistent
+	 */
+	public RestConcurrencyLimitProvider (final String configuration) throws NullPointerException, IllegalArgumentException {
+		this(configurationElement(configuration, 0, DEFAULT_INITIAL_LIMIT), configurationElement(configuration, 1, DEFAULT_MIN_LIMIT), configurationElement(configuration, 2, DEFAULT_MAX_LIMIT), configurationElement(configuration, 3, DEFAULT_RETRY_AFTER));
+	}
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param initialLimit the initial concurrency limit
+	 * @param minLimit the minimum concurrency limit
+	 * @param maxLimit the maximum concurrency limit
+	 * @param retryAfter the number of seconds rejected clients are asked to wait before retrying
+	 * @throws IllegalArgumentException if the limits are inconsistent, or if the given retry-after is negative
+	 */
+	public RestConcurrencyLimitProvider (final int initialLimit, final int minLimit, final int maxLimit, final int retryAfter) throws IllegalArgumentException {
+		if (minLimit < 1 | maxLimit < minLimit | initialLimit < minLimit | initialLimit > maxLimit | retryAfter < 0) throw new IllegalArgumentException();
+
+		this.minLimit = minLimit;
+		this.maxLimit = maxLimit;
+		this.retryAfter = retryAfter;
+		this.limit = initialLimit;
+
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(OBJECT_NAME);
+			try {
+				server.registerMBean(this, name);
+			} catch (final InstanceAlreadyExistsException exception) {
+				server.unregisterMBean(name);
+				server.registerMBean(this, name);
+			}
+		} catch (final JMException exception) {
+			throw new IllegalStateException(exception);
+		}
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getLimit () {
+		return (int) this.limit;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public int getInFlight () {
+		return this.inFlight.get();
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public long getRejectedCount () {
+		return this.rejectedCount.sum();
+	}
+
+
+	/**
+	 * Admits the filtered HTTP request if the number of requests in flight is below the current limit,
+	 * otherwise aborts it with HTTP 503 Service Unavailable. CORS preflight requests pass without admission.
+	 * @param request the HTTP request context
+	 * @throws NullPointerException if the given request context is null
+	 */
+	public void filter (final ContainerRequestContext request) throws NullPointerException {
+		if (RestCorsHeaderProvider.isPreflight(request)) return;
+
+		for (int inFlight = this.inFlight.get(); true; inFlight = this.inFlight.get()) {
+			if (inFlight >= (int) this.limit) {
+				this.rejectedCount.increment();
+				request.abortWith(Response.status(SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, this.retryAfter).build());
+				return;
+			}
+
+			if (this.inFlight.compareAndSet(inFlight, inFlight + 1)) {
+				request.setProperty(PROPERTY_ADMISSION, new Admission(this, System.nanoTime(), inFlight + 1));
+				return;
+			}
+		}
+	}
+
+
+	/**
+	 * Does nothing, as application events are not relevant for admission control.
+	 * @param event the application event
+	 */
+	public void onEvent (final ApplicationEvent event) {}
+
+
+	/**
+	 * Returns the listener releasing request admissions.
+	 * @param event the request start event
+	 * @return the request event listener
+	 */
+	public RequestEventListener onRequest (final RequestEvent event) {
+		return this.requestEventListener;
+	}
+
+
+	/**
+	 * Releases the admission of the request associated with the given event once the request has finished,
+	 * and adjusts the limit of the admitting provider based on it's latency. Note that the admission is
+	 * released by the provider that admitted the request, in case the provider has been instantiated more
+	 * than once for different provider contracts.
+	 * @param event the request event
+	 * @throws NullPointerException if the given event is null
+	 */
+	static private void release (final RequestEvent event) throws NullPointerException {
+		if (event.getType() != RequestEvent.Type.FINISHED) return;
+
+		final Admission admission = (Admission) event.getContainerRequest().getProperty(PROPERTY_ADMISSION);
+		if (admission == null) return;
+
+		event.getContainerRequest().removeProperty(PROPERTY_ADMISSION);
+		admission.provider().inFlight.decrementAndGet();
+		admission.provider().adjustLimit(System.nanoTime() - admission.timestamp(), admission.inFlight());
+	}
+
+
+	/**
+	 * Adjusts the limit based on the given request latency sample. The limit is only allowed to
+	 * grow if the request sample has been taken while at least half the limit has been in use.
+	 * @param rtt the request latency in nanoseconds
+	 * @param inFlight the number of requests in flight when the request was admitted
+	 */
+	private synchronized void adjustLimit (final long rtt, final int inFlight) {
+		this.shortRtt = this.shortRtt == 0 ? rtt : this.shortRtt + SHORT_RTT_SMOOTHING * (rtt - this.shortRtt);
+		this.longRtt = this.longRtt == 0 ? rtt : this.longRtt + LONG_RTT_SMOOTHING * (rtt - this.longRtt);
+		if (this.longRtt / this.shortRtt > DRIFT_RATIO) this.longRtt *= DRIFT_DECAY;
+
+		final double gradient = Math.max(MIN_GRADIENT, Math.min(MAX_GRADIENT, this.longRtt / this.shortRtt));
+		if (gradient == MAX_GRADIENT & inFlight < this.limit / 2) return;
+
+		final double targetLimit = this.limit * gradient + Math.sqrt(this.limit);
+		final double limit = this.limit + LIMIT_SMOOTHING * (targetLimit - this.limit);
+		this.limit = Math.max(this.minLimit, Math.min(this.maxLimit, limit));
+	}
+
+
+	/**
+	 * Returns the configuration element at the given index.
+	 * @param configuration the comma separated configuration
+	 * @param index the element index
+	 * @param defaultValue the value returned if the element is missing or empty
+	 * @return the configuration element
+	 * @throws NullPointerException if the given configuration is {@code null}
+	 * @throws IllegalArgumentException if the element is not a number
+	 */
+	static private int configurationElement (final String configuration, final int index, final int defaultValue) throws NullPointerException, IllegalArgumentException {
+		final String[] elements = configuration.split(",");
+		return index >= elements.length || elements[index].isBlank() ? defaultValue : Integer.parseInt(elements[index].trim());
+	}
+
+
+	/**
+	 * Admission record of a request, consisting of the admitting provider, the admission
+	 * timestamp in nanoseconds, and the number of requests in flight after admission.
+	 */
+	static private record Admission (RestConcurrencyLimitProvider provider, long timestamp, int inFlight) {}
+}
\ No newline at end of file
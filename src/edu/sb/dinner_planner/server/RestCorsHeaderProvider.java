@@ -1,13 +1,21 @@
 package edu.sb.dinner_planner.server;
 
+import static jakarta.ws.rs.core.Response.Status.FORBIDDEN;
+import static jakarta.ws.rs.core.Response.Status.NO_CONTENT;
+import java.util.Arrays;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 import jakarta.annotation.Priority;
 import jakarta.ws.rs.HttpMethod;
 import jakarta.ws.rs.Priorities;
 import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
 import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.container.PreMatching;
 import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MultivaluedMap;
+import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.ext.Provider;
 import edu.sb.tool.Copyright;
 
@@ -15,32 +23,141 @@ import edu.sb.tool.Copyright;
 /**
  * JAX-RS filter provider that adds the headers required for cross-origin resource
  * sharing (<i>CORS</i>) to any HTTP response created by a REST service method
- * answering an HTTP request that contains an "Origin" header entry.
+ * answering an HTTP request that contains an "Origin" header entry. CORS preflight
+ * requests are answered directly before resource matching, including an
+ * "Access-Control-Max-Age" header that allows browsers to cache the answer.
  */
 @Provider
+@PreMatching
 @Priority(Priorities.HEADER_DECORATOR)
 @Copyright(year=2013, holders="Sascha Baumeister")
-public class RestCorsHeaderProvider implements ContainerResponseFilter {
+public class RestCorsHeaderProvider implements ContainerRequestFilter, ContainerResponseFilter {
 	static private final String REQUEST_HEADERS = "Access-Control-Request-Headers";
 	static private final String REQUEST_METHOD = "Access-Control-Request-Method";
 	static private final String ALLOW_HEADERS = "Access-Control-Allow-Headers";
 	static private final String ALLOW_METHODS = "Access-Control-Allow-Methods";
 	static private final String ALLOW_CREDENTIALS = "Access-Control-Allow-Credentials";
 	static private final String ALLOW_ORIGIN = "Access-Control-Allow-Origin";
+	static private final String MAX_AGE = "Access-Control-Max-Age";
 	static private final String[] ALLOWED_METHODS = { HttpMethod.OPTIONS, HttpMethod.HEAD, HttpMethod.GET, HttpMethod.DELETE, HttpMethod.PATCH, HttpMethod.POST, HttpMethod.PUT };
+	static private final String ALLOWED_METHODS_TEXT = String.join(", ", ALLOWED_METHODS);
+	static private final String PROPERTY_PREFLIGHT = RestCorsHeaderProvider.class.getName() + ".preflight";
+	static private final int DEFAULT_MAX_AGE = 600;
+
+	private final Pattern allowedOrigins;
+	private final String maxAge;
 
 
 	/**
-	 * Adds the CORS headers to any filtered HTTP response.
+	 * Returns whether or not the given HTTP request is a CORS preflight request, i.e. an HTTP OPTIONS
+	 * request containing both an "Origin" and an "Access-Control-Request-Method" header.
+	 * @param request the HTTP request context
+	 * @return whether or not the request is a CORS preflight request
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static boolean isPreflight (final ContainerRequestContext request) throws NullPointerException {
+		if (!HttpMethod.OPTIONS.equals(request.getMethod())) return false;
+
+		final MultivaluedMap<String,String> requestHeaders = request.getHeaders();
+		return requestHeaders.getFirst("Origin") != null && requestHeaders.containsKey(REQUEST_METHOD);
+	}
+
+
+	/**
+	 * Initializes a new instance allowing all origins, with a preflight max age of 600 seconds.
+	 */
+	public RestCorsHeaderProvider () {
+		this("");
+	}
+
+
+	/**
+	 * Initializes a new instance from the given configuration, which is expected to consist of semicolon
+	 * separated key-value pairs, as in {@code "max-age=600; origins=https://www.example.com, https://*.example.org"}.
+	 * The origins are a comma separated allowlist, with "*" matching any host name characters; all origins are
+	 * allowed if the origins are omitted. The max age is the number of seconds browsers may cache preflight answers.
+	 * @param configuration the configuration
+	 * @throws NullPointerException if the given argument is {@code null}
+	 * @throws IllegalArgumentException if the given argument is malformed
+	 */
+	public RestCorsHeaderProvider (final String configuration) throws NullPointerException, IllegalArgumentException {
+		Pattern allowedOrigins = null;
+		int maxAge = DEFAULT_MAX_AGE;
+
+		for (final String element : configuration.split(";")) {
+			if (element.isBlank()) continue;
+			final int delimiterPosition = element.indexOf('=');
+			if (delimiterPosition == -1) throw new IllegalArgumentException(configuration);
+
+			final String key = element.substring(0, delimiterPosition).trim(), value = element.substring(delimiterPosition + 1).trim();
+			switch (key) {
+				case "max-age":
+					maxAge = Integer.parseInt(value);
+					if (maxAge < 0) throw new IllegalArgumentException(configuration);
+					break;
+				case "origins":
+					final String regex = Arrays.stream(value.split(","))
+						.map(String::trim)
+						.filter(origin -> !origin.isEmpty())
+						.map(origin -> Pattern.quote(origin).replace("*", "\\E[^/:]*\\Q"))
+						.collect(Collectors.joining("|"));
+					allowedOrigins = Pattern.compile(regex);
+					break;
+				default:
+					throw new IllegalArgumentException(configuration);
+			}
+		}
+
+		this.allowedOrigins = allowedOrigins;
+		this.maxAge = Integer.toString(maxAge);
+	}
+
+
+	/**
+	 * Answers CORS preflight requests directly, i.e. HTTP OPTIONS requests containing both an "Origin" and
+	 * an "Access-Control-Request-Method" header. Preflights from allowed origins are answered with HTTP 204
+	 * No Content and the CORS headers, while preflights from other origins are answered with HTTP 403 Forbidden.
+	 * @param request the HTTP request context
+	 * @throws NullPointerException if the given request context is null
+	 */
+	public void filter (final ContainerRequestContext request) throws NullPointerException {
+		if (!isPreflight(request)) return;
+
+		final MultivaluedMap<String,String> requestHeaders = request.getHeaders();
+		final String origin = requestHeaders.getFirst("Origin");
+		request.setProperty(PROPERTY_PREFLIGHT, Boolean.TRUE);
+		if (!this.isAllowedOrigin(origin)) {
+			request.abortWith(Response.status(FORBIDDEN).build());
+			return;
+		}
+
+		final Response.ResponseBuilder responseBuilder = Response.status(NO_CONTENT)
+			.header(ALLOW_ORIGIN, origin.equals("null") ? "*" : origin)
+			.header(ALLOW_METHODS, ALLOWED_METHODS_TEXT)
+			.header(MAX_AGE, this.maxAge);
+		if (!origin.equals("null")) responseBuilder.header(HttpHeaders.VARY, "Origin").header(ALLOW_CREDENTIALS, true);
+
+		final String requestedHeaders = requestHeaders.containsKey(REQUEST_HEADERS) ? String.join(", ", requestHeaders.get(REQUEST_HEADERS).toArray(String[]::new)) : null;
+		if (requestedHeaders != null) responseBuilder.header(ALLOW_HEADERS, requestedHeaders);
+
+		request.abortWith(responseBuilder.build());
+	}
+
+
+	/**
+	 * Adds the CORS headers to any filtered HTTP response, except for preflight responses
+	 * already answered by this provider, and for responses to origins that are not allowed.
 	 * @param request the HTTP request context
 	 * @param response the HTTP response context
 	 * @throws NullPointerException if the given response context is null
 	 */
 	public void filter (final ContainerRequestContext request, final ContainerResponseContext response) throws NullPointerException {
+		if (request.getProperty(PROPERTY_PREFLIGHT) != null) return;
+
 		final MultivaluedMap<String,String> requestHeaders = request.getHeaders();
 		final MultivaluedMap<String,Object> responseHeaders = response.getHeaders();
 		final String origin = requestHeaders.getFirst("Origin");
-		if (origin == null) return;
+		if (origin == null || !this.isAllowedOrigin(origin)) return;
 
 		responseHeaders.putSingle(ALLOW_ORIGIN, origin.equals("null") ? "*" : origin);
 		if (!origin.equals("null")) {
@@ -53,6 +170,17 @@ public class RestCorsHeaderProvider implements ContainerResponseFilter {
 		if (requestedHeaders != null) responseHeaders.putSingle(ALLOW_HEADERS, requestedHeaders);
 
 		final String requestedMethod = requestHeaders.containsKey(REQUEST_METHOD) ? requestHeaders.get(REQUEST_METHOD).get(0) : null;
-		if (requestedMethod != null) responseHeaders.putSingle(ALLOW_METHODS, String.join(", ", ALLOWED_METHODS));
+		if (requestedMethod != null) responseHeaders.putSingle(ALLOW_METHODS, ALLOWED_METHODS_TEXT);
+	}
+
+
+	/**
+	 * Returns whether or not the given origin is allowed.
+	 * @param origin the origin
+	 * @return whether or not the origin matches the allowlist, or {@code true} if there is no allowlist
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	private boolean isAllowedOrigin (final String origin) throws NullPointerException {
+		return this.allowedOrigins == null || this.allowedOrigins.matcher(origin).matches();
 	}
 }
\ No newline at end of file
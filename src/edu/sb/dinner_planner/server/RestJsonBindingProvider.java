@@ -0,0 +1,29 @@
+package edu.sb.dinner_planner.server;
+
+import edu.sb.tool.Copyright;
+import jakarta.json.bind.Jsonb;
+import jakarta.json.bind.JsonbBuilder;
+import jakarta.ws.rs.ext.ContextResolver;
+import jakarta.ws.rs.ext.Provider;
+
+
+/**
+ * JAX-RS context resolver providing a single, shared JSON binding instance for the JSON (de)serialization
+ * of REST service entities. As JSON bindings cache the class metadata they introspect, sharing the instance
+ * allows it to be warmed up before the first HTTP request arrives, see {@link ContainerWarmUp}.
+ */
+@Provider
+@Copyright(year=2025, holders="Sascha Baumeister")
+public class RestJsonBindingProvider implements ContextResolver<Jsonb> {
+	static public final Jsonb JSON_BINDING = JsonbBuilder.create();
+
+
+	/**
+	 * Returns the shared JSON binding.
+	 * @param type the type of object to be (de)serialized
+	 * @return the shared JSON binding
+	 */
+	public Jsonb getContext (final Class<?> type) {
+		return JSON_BINDING;
+	}
+}
\ No newline at end of file
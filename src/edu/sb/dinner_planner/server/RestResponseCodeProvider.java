@@ -3,7 +3,14 @@ package edu.sb.dinner_planner.server;
 import static jakarta.ws.rs.core.Response.Status.INTERNAL_SERVER_ERROR;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
+import java.util.logging.LogRecord;
 import java.util.logging.Logger;
 import edu.sb.tool.Copyright;
 import jakarta.annotation.Priority;
@@ -18,12 +25,29 @@ import jakarta.ws.rs.ext.Provider;
 /**
  * This exception mapper maps {@link WebApplicationException} instances to their respective HTTP responses, while all other
  * exception types are mapped to HTTP 500 Internal Server Error. The exceptions are additionally logged, with a log level
- * appropriate for the exception's severity.
+ * appropriate for the exception's severity. Logging is rate-limited using a token bucket per status family and exception
+ * type, stack traces are sampled once per report interval and bucket, and log records are published asynchronously by a
+ * logger thread. Suppressed log records are reported periodically as aggregated counts instead.
  */
 @Provider
 @Priority(Priorities.USER)
 @Copyright(year=2013, holders="Sascha Baumeister")
 public class RestResponseCodeProvider implements ExceptionMapper<Throwable> {
+	static private final int LOG_QUEUE_CAPACITY = 1024;
+	static private final long REPORT_INTERVAL = TimeUnit.MINUTES.toNanos(1);
+
+	private final Map<String,LogBucket> logBuckets = new ConcurrentHashMap<>();
+	private final BlockingQueue<LogRecord> logQueue = new ArrayBlockingQueue<>(LOG_QUEUE_CAPACITY);
+	private final LongAdder droppedCount = new LongAdder();
+
+
+	/**
+	 * Initializes a new instance, and starts it's logger thread.
+	 */
+	public RestResponseCodeProvider () {
+		Thread.ofPlatform().name("exception-logger").daemon(true).start(this::publishLogRecords);
+	}
+
 
 	/**
 	 * Maps the given exception to a HTTP response. In case of a WebApplicationException instance, it's associated response is
@@ -45,7 +69,15 @@ public class RestResponseCodeProvider implements ExceptionMapper<Throwable> {
 		if (exception instanceof Error) throw (Error) exception;
 
 		final Response response = exception instanceof WebApplicationException ? ((WebApplicationException) exception).getResponse() : Response.status(INTERNAL_SERVER_ERROR).build();
-		Logger.getGlobal().log(logLevel(response.getStatusInfo()), exception.getMessage(), exception);
+		final Response.Status.Family family = response.getStatusInfo().getFamily();
+		final Level level = logLevel(response.getStatusInfo());
+		if (!Logger.getGlobal().isLoggable(level)) return response;
+
+		final LogBucket logBucket = this.logBuckets.computeIfAbsent(family + " " + exception.getClass().getName(), key -> new LogBucket(family, level, exception.getClass().getName()));
+		final int admission = logBucket.admit();
+		if (admission == LogBucket.SUPPRESSED) return response;
+
+		this.enqueue(newLogRecord(level, exception.getMessage(), admission == LogBucket.TRACED ? exception : null));
 
 		final List<Throwable> exceptionChain = new ArrayList<>();
 		for (Throwable cause = exception; cause != null && !exceptionChain.contains(cause); cause = cause.getCause())
@@ -54,12 +86,77 @@ public class RestResponseCodeProvider implements ExceptionMapper<Throwable> {
 			.filter(cause -> cause instanceof ConstraintViolationException)
 			.map(cause -> (ConstraintViolationException) cause)
 			.flatMap(cause -> cause.getConstraintViolations().stream())
-			.forEach(constraintViolation -> Logger.getGlobal().log(Level.INFO, constraintViolation.toString()));
+			.forEach(constraintViolation -> this.enqueue(newLogRecord(Level.INFO, constraintViolation.toString(), null)));
 
 		return response;
 	}
 
 
+	/**
+	 * Hands the given log record over to the logger thread, or counts it as dropped if the log queue is full.
+	 * @param logRecord the log record
+	 * @throws NullPointerException if the given argument is null
+	 */
+	private void enqueue (final LogRecord logRecord) throws NullPointerException {
+		if (!this.logQueue.offer(logRecord)) this.droppedCount.increment();
+	}
+
+
+	/**
+	 * Publishes the queued log records to the global logger, and reports the aggregated
+	 * counts of suppressed and dropped log records once per report interval.
+	 */
+	private void publishLogRecords () {
+		try {
+			for (long reportTimestamp = System.nanoTime() + REPORT_INTERVAL; true; ) {
+				final LogRecord logRecord = this.logQueue.poll(Math.max(0, reportTimestamp - System.nanoTime()), TimeUnit.NANOSECONDS);
+				if (logRecord != null) Logger.getGlobal().log(logRecord);
+
+				if (System.nanoTime() - reportTimestamp >= 0) {
+					reportTimestamp = System.nanoTime() + REPORT_INTERVAL;
+					this.reportSuppressedLogRecords();
+				}
+			}
+		} catch (final InterruptedException exception) {
+			// do nothing
+		}
+	}
+
+
+	/**
+	 * Reports the counts of suppressed and dropped log records since the last report, and resets them.
+	 */
+	private void reportSuppressedLogRecords () {
+		for (final LogBucket logBucket : this.logBuckets.values()) {
+			final long occurrenceCount = logBucket.occurrenceCount.sumThenReset();
+			final long suppressedCount = logBucket.suppressedCount.sumThenReset();
+			if (suppressedCount > 0) Logger.getGlobal().log(newLogRecord(logBucket.level, String.format("%s (%s): %d of %d occurrences suppressed within the last %d seconds.", logBucket.exceptionType, logBucket.family, suppressedCount, occurrenceCount, TimeUnit.NANOSECONDS.toSeconds(REPORT_INTERVAL)), null));
+		}
+
+		final long droppedCount = this.droppedCount.sumThenReset();
+		if (droppedCount > 0) Logger.getGlobal().log(newLogRecord(Level.WARNING, String.format("%d log records dropped due to a full log queue within the last %d seconds.", droppedCount, TimeUnit.NANOSECONDS.toSeconds(REPORT_INTERVAL)), null));
+	}
+
+
+	/**
+	 * Returns a new log record. Note that the source class and method are set explicitly, because
+	 * they cannot be inferred once the log record is published by the logger thread.
+	 * @param level the log level
+	 * @param message the log message, or {@code null} for none
+	 * @param exception the exception whose stack trace is to be logged, or {@code null} for none
+	 * @return the log record created
+	 * @throws NullPointerException if the given level is null
+	 */
+	static private LogRecord newLogRecord (final Level level, final String message, final Throwable exception) throws NullPointerException {
+		final LogRecord logRecord = new LogRecord(level, message);
+		logRecord.setLoggerName(Logger.GLOBAL_LOGGER_NAME);
+		logRecord.setSourceClassName(RestResponseCodeProvider.class.getName());
+		logRecord.setSourceMethodName("toResponse");
+		logRecord.setThrown(exception);
+		return logRecord;
+	}
+
+
 	/**
 	 * Returns the log level appropriate for the given HTTP response status.
 	 * @param status the HTTP response status
@@ -82,4 +179,80 @@ public class RestResponseCodeProvider implements ExceptionMapper<Throwable> {
 				throw new AssertionError();
 		}
 	}
+
+
+
+	/**
+	 * Token bucket limiting the rate of log records for a combination of status family and exception
+	 * type. Server errors are granted a burst of 10 log records refilled at one per second, client
+	 * errors a burst of 5 refilled at one per 5 seconds, and all other families a burst of 2 refilled
+	 * at one per 10 seconds. Only the first admitted log record per report interval carries a stack trace.
+	 */
+	static private class LogBucket {
+		static public final int SUPPRESSED = 0, ADMITTED = 1, TRACED = 2;
+
+		private final Response.Status.Family family;
+		private final Level level;
+		private final String exceptionType;
+		private final double capacity;
+		private final double refillRate;
+		private final LongAdder occurrenceCount = new LongAdder();
+		private final LongAdder suppressedCount = new LongAdder();
+		private double tokens;
+		private long refillTimestamp;
+		private long traceTimestamp;
+
+
+		/**
+		 * Initializes a new instance.
+		 * @param family the status family
+		 * @param level the log level
+		 * @param exceptionType the exception type name
+		 */
+		public LogBucket (final Response.Status.Family family, final Level level, final String exceptionType) {
+			this.family = family;
+			this.level = level;
+			this.exceptionType = exceptionType;
+			switch (family) {
+				case SERVER_ERROR:
+					this.capacity = 10;
+					this.refillRate = 1.0 / TimeUnit.SECONDS.toNanos(1);
+					break;
+				case CLIENT_ERROR:
+					this.capacity = 5;
+					this.refillRate = 1.0 / TimeUnit.SECONDS.toNanos(5);
+					break;
+				default:
+					this.capacity = 2;
+					this.refillRate = 1.0 / TimeUnit.SECONDS.toNanos(10);
+					break;
+			}
+			this.tokens = this.capacity;
+			this.refillTimestamp = System.nanoTime();
+			this.traceTimestamp = this.refillTimestamp - REPORT_INTERVAL;
+		}
+
+
+		/**
+		 * Counts an occurrence, and takes a token from this bucket if available.
+		 * @return {@link #TRACED} if the log record shall be logged including it's stack trace,
+		 *         {@link #ADMITTED} if it shall be logged without, or {@link #SUPPRESSED} if it shall be suppressed
+		 */
+		public synchronized int admit () {
+			this.occurrenceCount.increment();
+
+			final long timestamp = System.nanoTime();
+			this.tokens = Math.min(this.capacity, this.tokens + (timestamp - this.refillTimestamp) * this.refillRate);
+			this.refillTimestamp = timestamp;
+			if (this.tokens < 1) {
+				this.suppressedCount.increment();
+				return SUPPRESSED;
+			}
+
+			this.tokens -= 1;
+			if (timestamp - this.traceTimestamp < REPORT_INTERVAL) return ADMITTED;
+			this.traceTimestamp = timestamp;
+			return TRACED;
+		}
+	}
 }
\ No newline at end of file
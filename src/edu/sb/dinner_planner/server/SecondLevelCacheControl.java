@@ -0,0 +1,275 @@
+package edu.sb.dinner_planner.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import org.eclipse.persistence.descriptors.ClassDescriptor;
+import org.eclipse.persistence.internal.sessions.AbstractSession;
+import org.eclipse.persistence.jpa.JpaHelper;
+import org.eclipse.persistence.sessions.SessionProfiler;
+import org.eclipse.persistence.tools.profiler.PerformanceMonitor;
+import edu.sb.dinner_planner.persistence.AbstractEntity;
+import edu.sb.dinner_planner.persistence.Ingredient;
+import edu.sb.dinner_planner.persistence.Recipe;
+import edu.sb.dinner_planner.persistence.Victual;
+import edu.sb.tool.Copyright;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.metamodel.Attribute;
+import jakarta.persistence.metamodel.EntityType;
+import jakarta.persistence.metamodel.PluralAttribute;
+
+
+/**
+ * Control of the second level cache of a persistence unit, published as the JMX bean
+ * {@code edu.sb.dinner_planner.server:type=SecondLevelCacheControl,unit=<unit-name>} for every primary persistence
+ * unit created by {@link PersistenceContextProvider}. This allows operators to preload, inspect and evict the
+ * cache of a running container, instead of the cache of an administration process that happens to use the same
+ * database. Cache hits and misses are only recorded while recording is started, because the profiler required for
+ * counting them adds overhead to every query. The preload and statistics algorithms are also offered as static
+ * operations for use with arbitrary entity manager factories.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public final class SecondLevelCacheControl implements SecondLevelCacheControlMXBean {
+	static private final String OBJECT_NAME = "edu.sb.dinner_planner.server:type=SecondLevelCacheControl,unit=%s";
+	static private final String QUERY_ENTITY_PAGE = "select e from %s as e where e.identity > :lowerIdentity order by e.identity";
+	static private final List<Class<?>> PRELOAD_TYPES = List.of(Victual.class, Recipe.class, Ingredient.class);
+
+	private final String unitName;
+	private final EntityManagerFactory entityManagerFactory;
+	private volatile PerformanceMonitor performanceMonitor;
+
+
+	/**
+	 * Initializes a new instance.
+	 * @param unitName the persistence unit name
+	 * @param entityManagerFactory the entity manager factory
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 */
+	private SecondLevelCacheControl (final String unitName, final EntityManagerFactory entityManagerFactory) throws NullPointerException {
+		this.unitName = Objects.requireNonNull(unitName);
+		this.entityManagerFactory = Objects.requireNonNull(entityManagerFactory);
+		this.performanceMonitor = null;
+	}
+
+
+	/**
+	 * Creates a new cache control for the given persistence unit, and publishes it via JMX,
+	 * replacing a previously published control of the same unit.
+	 * @param unitName the persistence unit name
+	 * @param entityManagerFactory the entity manager factory
+	 * @return the cache control created
+	 * @throws NullPointerException if any of the given arguments is {@code null}
+	 * @throws IllegalStateException if the cache control cannot be published via JMX
+	 */
+	static public SecondLevelCacheControl register (final String unitName, final EntityManagerFactory entityManagerFactory) throws NullPointerException, IllegalStateException {
+		final SecondLevelCacheControl cacheControl = new SecondLevelCacheControl(unitName, entityManagerFactory);
+
+		try {
+			final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+			final ObjectName name = new ObjectName(String.format(OBJECT_NAME, ObjectName.quote(unitName)));
+			try {
+				server.registerMBean(cacheControl, name);
+			} catch (final InstanceAlreadyExistsException exception) {
+				server.unregisterMBean(name);
+				server.registerMBean(cacheControl, name);
+			}
+		} catch (final JMException exception) {
+			throw new IllegalStateException(exception);
+		}
+
+		return cacheControl;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String getUnitName () {
+		return this.unitName;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public boolean isRecording () {
+		return this.performanceMonitor != null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String[] getStatistics () {
+		return statistics(this.entityManagerFactory, this.performanceMonitor).toArray(String[]::new);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized void startRecording () {
+		if (this.performanceMonitor == null) this.performanceMonitor = startProfiling(this.entityManagerFactory);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public synchronized void stopRecording () {
+		if (this.performanceMonitor != null) stopProfiling(this.entityManagerFactory);
+		this.performanceMonitor = null;
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public String[] preload (final int batchSize) throws IllegalArgumentException {
+		return preload(this.entityManagerFactory, batchSize).toArray(String[]::new);
+	}
+
+
+	/**
+	 * {@inheritDoc}
+	 */
+	public void evictAll () {
+		this.entityManagerFactory.getCache().evictAll();
+	}
+
+
+	/**
+	 * Installs a new profiler counting the cache hits and misses of the given entity manager factory's session.
+	 * @param entityManagerFactory the entity manager factory
+	 * @return the profiler installed
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public PerformanceMonitor startProfiling (final EntityManagerFactory entityManagerFactory) throws NullPointerException {
+		final PerformanceMonitor performanceMonitor = new PerformanceMonitor();
+		performanceMonitor.setDumpTime(Long.MAX_VALUE);
+		performanceMonitor.setProfileWeight(SessionProfiler.NORMAL);
+		JpaHelper.getServerSession(entityManagerFactory).setProfiler(performanceMonitor);
+		return performanceMonitor;
+	}
+
+
+	/**
+	 * Removes the profiler of the given entity manager factory's session.
+	 * @param entityManagerFactory the entity manager factory
+	 * @throws NullPointerException if the given argument is {@code null}
+	 */
+	static public void stopProfiling (final EntityManagerFactory entityManagerFactory) throws NullPointerException {
+		JpaHelper.getServerSession(entityManagerFactory).setProfiler(null);
+	}
+
+
+	/**
+	 * Returns the second level cache statistics of the given entity manager factory, i.e. the cache size per entity
+	 * type, plus the hits, misses and hit ratio counted by the given profiler.
+	 * @param entityManagerFactory the entity manager factory
+	 * @param performanceMonitor the profiler, or {@code null} for none
+	 * @return the statistics, one line per entity type
+	 * @throws NullPointerException if the given entity manager factory is {@code null}
+	 */
+	static public List<String> statistics (final EntityManagerFactory entityManagerFactory, final PerformanceMonitor performanceMonitor) throws NullPointerException {
+		final AbstractSession session = (AbstractSession) JpaHelper.getServerSession(entityManagerFactory);
+		final Set<String> classNames = session.getDescriptors().values().stream().map(ClassDescriptor::getJavaClassName).collect(Collectors.toSet());
+		final Map<String,long[]> cacheCounters = new HashMap<>();
+		final Map<String,Object> operationTimings = performanceMonitor == null ? Map.of() : performanceMonitor.getOperationTimings();
+		for (final Map.Entry<String,Object> entry : operationTimings.entrySet()) {
+			final int counterIndex = entry.getKey().endsWith(":CacheHits") ? 0 : entry.getKey().endsWith(":CacheMisses") ? 1 : -1;
+			if (counterIndex == -1 || !(entry.getValue() instanceof Number)) continue;
+
+			// query counter keys look like "Counter:<query-type>:<reference-class>:<query-name>:CacheHits"
+			final String[] keyElements = entry.getKey().split(":");
+			for (int index = 1; index < keyElements.length - 1; ++index) {
+				if (!classNames.contains(keyElements[index])) continue;
+
+				cacheCounters.computeIfAbsent(keyElements[index], key -> new long[2])[counterIndex] += ((Number) entry.getValue()).longValue();
+				break;
+			}
+		}
+
+		final List<String> statistics = new ArrayList<>();
+		for (final ClassDescriptor descriptor : session.getDescriptors().values()) {
+			if (descriptor.isAggregateDescriptor()) continue;
+
+			// identity maps are shared within inheritance hierarchies, therefore count the descriptor's own class only
+			final int cacheSize = session.getIdentityMapAccessorInstance().getIdentityMap(descriptor).getSize(descriptor.getJavaClass(), false);
+			if (performanceMonitor == null) {
+				statistics.add(String.format("%s: %d cached, hits and misses not recorded", descriptor.getAlias(), cacheSize));
+			} else {
+				final long[] counters = cacheCounters.getOrDefault(descriptor.getJavaClassName(), new long[2]);
+				final String hitRatio = counters[0] + counters[1] == 0 ? "n/a" : String.format("%.1f%%", 100.0 * counters[0] / (counters[0] + counters[1]));
+				statistics.add(String.format("%s: %d cached, %d hits, %d misses, hit ratio %s", descriptor.getAlias(), cacheSize, counters[0], counters[1], hitRatio));
+			}
+		}
+
+		return statistics;
+	}
+
+
+	/**
+	 * Loads all victuals, recipes and ingredients into the second level cache of the given entity manager factory,
+	 * using batched read-only queries which also batch-fetch the associations among these types.
+	 * @param entityManagerFactory the entity manager factory
+	 * @param batchSize the maximum number of entities per query
+	 * @return the preload report, one line per entity type
+	 * @throws NullPointerException if the given entity manager factory is {@code null}
+	 * @throws IllegalArgumentException if the given batch size is negative or zero
+	 */
+	static public List<String> preload (final EntityManagerFactory entityManagerFactory, final int batchSize) throws NullPointerException, IllegalArgumentException {
+		if (batchSize <= 0) throw new IllegalArgumentException("batch size must be positive!");
+
+		final List<String> report = new ArrayList<>();
+		try (EntityManager entityManager = entityManagerFactory.createEntityManager()) {
+			for (final Class<?> preloadType : PRELOAD_TYPES) {
+				final long timestamp = System.nanoTime();
+				final EntityType<?> entityType = entityManager.getMetamodel().entity(preloadType);
+				final Set<String> associationNames = entityType.getAttributes()
+					.stream()
+					.filter(Attribute::isAssociation)
+					.filter(attribute -> PRELOAD_TYPES.contains(attribute instanceof PluralAttribute ? ((PluralAttribute<?,?,?>) attribute).getElementType().getJavaType() : attribute.getJavaType()))
+					.map(Attribute::getName)
+					.collect(Collectors.toSet());
+
+				long entityCount = 0, batchCount = 0;
+				for (long lastIdentity = 0; true; ++batchCount) {
+					final TypedQuery<? extends AbstractEntity> query = entityManager
+						.createQuery(String.format(QUERY_ENTITY_PAGE, entityType.getName()), preloadType.asSubclass(AbstractEntity.class))
+						.setParameter("lowerIdentity", lastIdentity)
+						.setMaxResults(batchSize)
+						.setHint("eclipselink.read-only", Boolean.TRUE)
+						.setHint("eclipselink.batch.type", "IN")
+						.setHint("eclipselink.batch.size", batchSize);
+					for (final String associationName : associationNames) {
+						query.setHint("eclipselink.batch", "e." + associationName);
+						query.setHint("eclipselink.load-group.attribute", associationName);
+					}
+
+					final List<? extends AbstractEntity> entities = query.getResultList();
+					if (entities.isEmpty()) break;
+
+					entityCount += entities.size();
+					lastIdentity = entities.get(entities.size() - 1).getIdentity();
+					entityManager.clear();
+				}
+
+				report.add(String.format("Preloaded %d %s entities in %d batches within %d ms", entityCount, entityType.getName(), batchCount, (System.nanoTime() - timestamp) / 1_000_000));
+			}
+		}
+
+		return report;
+	}
+}
@@ -0,0 +1,60 @@
+package edu.sb.dinner_planner.server;
+
+import edu.sb.tool.Copyright;
+
+
+/**
+ * JMX interface publishing the state and operations of a {@link SecondLevelCacheControl}.
+ */
+@Copyright(year=2025, holders="Sascha Baumeister")
+public interface SecondLevelCacheControlMXBean {
+
+	/**
+	 * Returns the persistence unit name.
+	 * @return the name of the persistence unit whose second level cache is controlled
+	 */
+	String getUnitName ();
+
+
+	/**
+	 * Returns whether or not cache hits and misses are being recorded.
+	 * @return {@code true} if a profiler is installed, {@code false} otherwise
+	 */
+	boolean isRecording ();
+
+
+	/**
+	 * Returns the second level cache statistics, i.e. the cache size per entity type, plus the hits, misses
+	 * and hit ratio recorded since recording has been started.
+	 * @return the statistics, one line per entity type
+	 */
+	String[] getStatistics ();
+
+
+	/**
+	 * Starts recording cache hits and misses by installing a profiler, which adds overhead to every query;
+	 * does nothing if recording already.
+	 */
+	void startRecording ();
+
+
+	/**
+	 * Stops recording cache hits and misses, discarding the counters recorded so far.
+	 */
+	void stopRecording ();
+
+
+	/**
+	 * Loads all victuals, recipes and ingredients into the second level cache using batched queries.
+	 * @param batchSize the maximum number of entities per query
+	 * @return the preload report, one line per entity type
+	 * @throws IllegalArgumentException if the given batch size is negative or zero
+	 */
+	String[] preload (int batchSize) throws IllegalArgumentException;
+
+
+	/**
+	 * Evicts all entities from the second level cache.
+	 */
+	void evictAll ();
+}
@@ -18,6 +18,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.net.ssl.KeyManagerFactory;
@@ -35,6 +37,9 @@ import edu.sb.tool.Copyright;
  */
 @Copyright(year=2014, holders="Sascha Baumeister")
 public class TcpServers {
+	static private final String EXECUTION_MODE_VIRTUAL = "virtual";
+	static private final String EXECUTION_MODE_PLATFORM = "platform";
+	static private final int DEFAULT_PLATFORM_POOL_SIZE = 2 * Runtime.getRuntime().availableProcessors();
 
 	/**
 	 * Prevents external instantiation.
@@ -142,4 +147,34 @@ public class TcpServers {
 		server.setHttpsConfigurator(configurator);
 		return server;
 	}
+
+
+	/**
+	 * Returns a new executor for processing HTTP exchanges. The given execution mode is expected to be either
+	 * {@code "virtual"} for running each exchange within it's own virtual thread, or {@code "platform"} for
+	 * running the exchanges within a fixed pool of platform threads, optionally followed by a colon and the
+	 * pool size (default is twice the number of available processors), as in {@code "platform:64"}.
+	 * @param executionMode the execution mode, or {@code null} for {@code "virtual"}
+	 * @return the executor created
+	 * @throws IllegalArgumentException if the given execution mode is not supported, or if it's pool size is illegal
+	 */
+	static public ExecutorService newHttpExecutor (final String executionMode) throws IllegalArgumentException {
+		final String mode = executionMode == null || executionMode.isBlank() ? EXECUTION_MODE_VIRTUAL : executionMode.trim().toLowerCase();
+		if (mode.equals(EXECUTION_MODE_VIRTUAL))
+			return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("http-exchange-", 0).factory());
+
+		if (mode.equals(EXECUTION_MODE_PLATFORM) || mode.startsWith(EXECUTION_MODE_PLATFORM + ":")) {
+			final int poolSize;
+			try {
+				poolSize = mode.equals(EXECUTION_MODE_PLATFORM) ? DEFAULT_PLATFORM_POOL_SIZE : Integer.parseInt(mode.substring(EXECUTION_MODE_PLATFORM.length() + 1));
+			} catch (final NumberFormatException exception) {
+				throw new IllegalArgumentException("configured execution mode is illegal: " + executionMode, exception);
+			}
+			if (poolSize < 1) throw new IllegalArgumentException("configured execution mode is illegal: " + executionMode);
+
+			return Executors.newFixedThreadPool(poolSize, Thread.ofPlatform().name("http-exchange-", 0).daemon(true).factory());
+		}
+
+		throw new IllegalArgumentException("configured execution mode is illegal: " + executionMode);
+	}
 }
\ No newline at end of file
@@ -1,17 +1,24 @@
 open module edu.sb.dinner_planner.server {
+	exports edu.sb.dinner_planner.server;
+
 	requires edu.sb.dinner_planner.model;
 
 	requires java.instrument;
+	requires java.management;
+	requires java.net.http;
+	requires java.sql;
 	requires jdk.httpserver;
 	requires jakarta.el;
 	requires jakarta.activation;
 	requires jakarta.annotation;
 	requires jakarta.persistence;
+	requires eclipselink;
 	requires jersey.container.jdk.http;
 
 	requires jakarta.inject;
 	requires org.glassfish.hk2.api;
 	requires java.desktop;
+	requires jakarta.json;
 	requires jakarta.json.bind;
 	requires jakarta.validation;
 }
\ No newline at end of file